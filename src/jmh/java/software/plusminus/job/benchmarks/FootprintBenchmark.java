@@ -0,0 +1,45 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.CompactJob;
+import software.plusminus.job.Job;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FootprintBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int steps;
+
+    @Benchmark
+    public Job job() {
+        return Steps.job(steps);
+    }
+
+    @Benchmark
+    public CompactJob compactJob() {
+        return new CompactJob(steps, step -> { }, step -> { });
+    }
+
+    @Benchmark
+    public CompactJob runCompactJob() {
+        CompactJob job = new CompactJob(steps, step -> { }, step -> { });
+        job.run();
+        return job;
+    }
+}
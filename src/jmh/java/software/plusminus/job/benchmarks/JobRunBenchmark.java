@@ -0,0 +1,59 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.Job;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 100, batchSize = JobRunBenchmark.BATCH)
+@Measurement(iterations = 100, batchSize = JobRunBenchmark.BATCH)
+@Fork(1)
+public class JobRunBenchmark {
+
+    static final int BATCH = 10;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int steps;
+
+    private Job[] jobs = new Job[BATCH];
+    private Job[] completedJobs = new Job[BATCH];
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        for (int i = 0; i < BATCH; i++) {
+            jobs[i] = Steps.job(steps);
+            completedJobs[i] = Steps.job(steps);
+            completedJobs[i].run();
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Job run() {
+        Job job = jobs[next++];
+        job.run();
+        return job;
+    }
+
+    @Benchmark
+    public Job rollback() {
+        Job completedJob = completedJobs[next++];
+        completedJob.rollback();
+        return completedJob;
+    }
+}
@@ -0,0 +1,49 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.JobAction;
+import software.plusminus.job.JobStatus;
+import software.plusminus.job.Step;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobStatusBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int steps;
+
+    private List<Step<?>> stepList;
+
+    @Setup
+    public void setUp() {
+        stepList = Steps.steps(steps);
+    }
+
+    @Benchmark
+    public JobStatus max() {
+        return JobStatus.max(stepList, JobStatus.READY);
+    }
+
+    @Benchmark
+    public JobStatus checkAction() {
+        JobStatus.ERROR.checkAction(JobAction.ROLLBACK);
+        return JobStatus.ERROR;
+    }
+}
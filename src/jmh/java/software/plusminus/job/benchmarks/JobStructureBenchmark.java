@@ -0,0 +1,89 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.Job;
+import software.plusminus.job.JobTemplate;
+import software.plusminus.job.Step;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobStructureBenchmark {
+
+    static final int BATCH = 10;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int steps;
+
+    private List<Step<?>> newSteps;
+    private JobTemplate template;
+    private Job[] jobs = new Job[BATCH];
+    private Step<?>[] middleSteps = new Step<?>[BATCH];
+    private Step<?>[] replacements = new Step<?>[BATCH];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        newSteps = Steps.steps(steps);
+        template = Steps.template(steps);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpJobs() {
+        for (int i = 0; i < BATCH; i++) {
+            List<Step<?>> jobSteps = Steps.steps(steps);
+            jobs[i] = new Job();
+            jobSteps.forEach(jobs[i]::addStep);
+            middleSteps[i] = jobSteps.get(steps / 2);
+            replacements[i] = Steps.step(-1);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Job addSteps() {
+        Job newJob = new Job();
+        newSteps.forEach(newJob::addStep);
+        return newJob;
+    }
+
+    @Benchmark
+    public Job newJobFromTemplate() {
+        return template.newJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 100, batchSize = BATCH)
+    @Measurement(iterations = 100, batchSize = BATCH)
+    public boolean removeStep() {
+        int index = next++;
+        return jobs[index].removeStep(middleSteps[index]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 100, batchSize = BATCH)
+    @Measurement(iterations = 100, batchSize = BATCH)
+    public boolean replaceStep() {
+        int index = next++;
+        return jobs[index].replaceStep(middleSteps[index], replacements[index]);
+    }
+}
@@ -0,0 +1,89 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.AsyncStatusDispatcher;
+import software.plusminus.job.BackpressurePolicy;
+import software.plusminus.job.Job;
+import software.plusminus.job.JobStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 100, batchSize = ListenerBenchmark.BATCH)
+@Measurement(iterations = 100, batchSize = ListenerBenchmark.BATCH)
+@Fork(1)
+public class ListenerBenchmark {
+
+    static final int BATCH = 100;
+
+    @Param({"NONE", "STATUS", "EVENT", "ASYNC"})
+    private String listener;
+
+    @Param({"1000"})
+    private int steps;
+
+    private LongAdder notifications = new LongAdder();
+    private AsyncStatusDispatcher dispatcher;
+    private Job[] jobs = new Job[BATCH];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void startDispatcher() {
+        dispatcher = new AsyncStatusDispatcher(batch -> notifications.add(batch.size()), 1024, 256,
+                BackpressurePolicy.BLOCK);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        for (int i = 0; i < BATCH; i++) {
+            jobs[i] = newJob();
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDispatcher() {
+        dispatcher.close();
+    }
+
+    @Benchmark
+    public Job run() {
+        Job job = jobs[next++];
+        job.run();
+        return job;
+    }
+
+    private Job newJob() {
+        Job job;
+        if ("STATUS".equals(listener)) {
+            job = new Job(this::onStatus);
+        } else {
+            job = new Job();
+        }
+        if ("EVENT".equals(listener)) {
+            job.addEventListener(event -> notifications.increment());
+        } else if ("ASYNC".equals(listener)) {
+            job.addEventListener(dispatcher);
+        }
+        return Steps.job(job, steps);
+    }
+
+    private void onStatus(JobStatus status) {
+        notifications.increment();
+    }
+}
@@ -0,0 +1,47 @@
+package software.plusminus.job.benchmarks;
+
+import lombok.experimental.UtilityClass;
+import software.plusminus.job.Job;
+import software.plusminus.job.JobTemplate;
+import software.plusminus.job.Step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@UtilityClass
+class Steps {
+
+    private static final Runnable NO_OP = () -> { };
+
+    Step<Integer> step(int index) {
+        return new Step<>(() -> index, NO_OP, null, null);
+    }
+
+    List<Step<?>> steps(int count) {
+        List<Step<?>> steps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            steps.add(step(i));
+        }
+        return steps;
+    }
+
+    Job job(int count) {
+        return job(new Job(), count);
+    }
+
+    Job job(Job job, int count) {
+        for (int i = 0; i < count; i++) {
+            job.addStep(step(i));
+        }
+        return job;
+    }
+
+    JobTemplate template(int count) {
+        JobTemplate template = new JobTemplate();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            template.addStep(() -> index, NO_OP);
+        }
+        return template;
+    }
+}
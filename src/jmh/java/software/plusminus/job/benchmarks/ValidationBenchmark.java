@@ -0,0 +1,66 @@
+package software.plusminus.job.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.plusminus.job.JobStatus;
+import software.plusminus.job.StepRunner;
+
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private StepRunner<Void> constrained = new ConstrainedRunner();
+    private StepRunner<Void> unconstrained = new UnconstrainedRunner();
+
+    @Benchmark
+    public boolean constrained() {
+        return constrained.validate();
+    }
+
+    @Benchmark
+    public boolean unconstrained() {
+        return unconstrained.validate();
+    }
+
+    public static class UnconstrainedRunner implements StepRunner<Void> {
+
+        @Override
+        public Void run() {
+            return null;
+        }
+
+        @Override
+        public Runnable rollback() {
+            return null;
+        }
+
+        @Override
+        public void status(JobStatus status) {
+            // benchmarks do not observe statuses
+        }
+    }
+
+    public static class ConstrainedRunner extends UnconstrainedRunner {
+
+        @NotEmpty
+        private String name = "benchmark";
+
+        @Positive
+        private int count = 1;
+    }
+}
@@ -0,0 +1,169 @@
+package software.plusminus.job;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class AsyncStatusDispatcher implements Consumer<StatusEvent>, AutoCloseable {
+
+    private final Consumer<List<StatusEvent>> batchListener;
+    private final BackpressurePolicy policy;
+    private final int maxBatchSize;
+    private final StatusEvent[] buffer;
+    private final Map<Object, Long> pendingBySource = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final Thread thread;
+    private long head;
+    private long tail;
+    private boolean closed;
+
+    public AsyncStatusDispatcher(Consumer<List<StatusEvent>> batchListener,
+                                 int capacity,
+                                 int maxBatchSize,
+                                 BackpressurePolicy policy) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.batchListener = batchListener;
+        this.policy = policy;
+        this.maxBatchSize = maxBatchSize;
+        this.buffer = new StatusEvent[capacity];
+        this.thread = new Thread(this::dispatch, "plusminus-job-status-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void accept(StatusEvent event) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The dispatcher is closed");
+            }
+            if (policy == BackpressurePolicy.COALESCE && isFull() && coalesce(event)) {
+                return;
+            }
+            while (isFull()) {
+                if (policy == BackpressurePolicy.DROP_OLDEST) {
+                    take();
+                    dropped.incrementAndGet();
+                } else {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            if (policy == BackpressurePolicy.COALESCE) {
+                pendingBySource.put(event.getSource(), tail);
+            }
+            buffer[index(tail)] = event;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean coalesce(StatusEvent event) {
+        Long position = pendingBySource.get(event.getSource());
+        if (position == null) {
+            return false;
+        }
+        StatusEvent pending = buffer[index(position)];
+        buffer[index(position)] = new StatusEvent(event.getJob(), event.getStep(),
+                pending.getOldStatus(), event.getNewStatus(), event.getTimestamp());
+        return true;
+    }
+
+    private void dispatch() {
+        while (true) {
+            List<StatusEvent> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                batchListener.accept(batch);
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+            }
+        }
+    }
+
+    private List<StatusEvent> nextBatch() {
+        lock.lock();
+        try {
+            while (head == tail && !closed) {
+                notEmpty.awaitUninterruptibly();
+            }
+            int size = (int) Math.min(tail - head, maxBatchSize);
+            List<StatusEvent> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(take());
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StatusEvent take() {
+        int index = index(head);
+        StatusEvent event = buffer[index];
+        buffer[index] = null;
+        if (policy == BackpressurePolicy.COALESCE) {
+            pendingBySource.remove(event.getSource(), head);
+        }
+        head++;
+        return event;
+    }
+
+    private boolean isFull() {
+        return tail - head == buffer.length;
+    }
+
+    private int index(long position) {
+        return (int) (position % buffer.length);
+    }
+}
@@ -0,0 +1,9 @@
+package software.plusminus.job;
+
+public enum BackpressurePolicy {
+
+    BLOCK,
+    DROP_OLDEST,
+    COALESCE;
+
+}
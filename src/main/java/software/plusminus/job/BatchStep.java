@@ -0,0 +1,294 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+public class BatchStep<I> implements StepRunner<Long> {
+
+    private static final int COMPENSATION_WINDOW = 16;
+
+    private final Supplier<? extends Iterator<? extends I>> source;
+    private final int chunkSize;
+    private final Consumer<List<I>> processor;
+    @Nullable
+    private final Consumer<List<I>> compensator;
+    @Getter
+    @Setter
+    private volatile int parallelism = 1;
+    @Nullable
+    @Setter
+    private volatile Executor executor;
+
+    @Nullable
+    private volatile Step<Long> step;
+    private long watermark;
+    private final BitSet committedAhead = new BitSet();
+    private long committedItems;
+
+    public BatchStep(Supplier<? extends Iterator<? extends I>> source,
+                     int chunkSize,
+                     Consumer<List<I>> processor,
+                     @Nullable Consumer<List<I>> compensator) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.processor = processor;
+        this.compensator = compensator;
+    }
+
+    @Override
+    public Long run() {
+        restoreWatermark();
+        resetCommittedItems();
+        Executor currentExecutor = executor;
+        int currentParallelism = parallelism;
+        if (currentExecutor == null || currentParallelism <= 1) {
+            runSequentially();
+        } else {
+            runInParallel(currentExecutor, currentParallelism);
+        }
+        return getCommittedItems();
+    }
+
+    @Nullable
+    @Override
+    public Runnable rollback() {
+        if (compensator == null) {
+            return null;
+        }
+        return this::compensate;
+    }
+
+    @Override
+    public void status(JobStatus status) {
+        // progress is tracked per chunk
+    }
+
+    @Override
+    @SuppressWarnings("checkstyle:HiddenField")
+    public void attach(Step<Long> step) {
+        this.step = step;
+    }
+
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    public synchronized long getCommittedChunks() {
+        return watermark + committedAhead.cardinality();
+    }
+
+    public synchronized long getCommittedItems() {
+        return committedItems;
+    }
+
+    private void runSequentially() {
+        Iterator<? extends I> iterator = source.get();
+        for (long chunk = 0; iterator.hasNext(); chunk++) {
+            checkNotInterrupted();
+            List<I> items = nextChunk(iterator);
+            if (isCommitted(chunk)) {
+                addCommittedItems(items.size());
+            } else {
+                processor.accept(items);
+                commit(chunk, items.size());
+            }
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void runInParallel(Executor currentExecutor, int currentParallelism) {
+        Semaphore window = new Semaphore(currentParallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Iterator<? extends I> iterator = source.get();
+        try {
+            for (long chunk = 0; iterator.hasNext() && failure.get() == null; chunk++) {
+                checkNotInterrupted();
+                List<I> items = nextChunk(iterator);
+                if (isCommitted(chunk)) {
+                    addCommittedItems(items.size());
+                    continue;
+                }
+                window.acquireUninterruptibly();
+                long chunkIndex = chunk;
+                try {
+                    currentExecutor.execute(() -> {
+                        try {
+                            processor.accept(items);
+                            commit(chunkIndex, items.size());
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            window.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    window.release();
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } finally {
+            window.acquireUninterruptibly(currentParallelism);
+        }
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+    }
+
+    private void compensate() {
+        Consumer<List<I>> currentCompensator = compensator;
+        if (currentCompensator == null) {
+            return;
+        }
+        restoreWatermark();
+        long end = lastCommittedChunk();
+        while (end > 0) {
+            long start = Math.max(0, end - COMPENSATION_WINDOW);
+            List<List<I>> window = readChunks(start, end);
+            for (int i = window.size() - 1; i >= 0; i--) {
+                long chunk = start + i;
+                if (isCommitted(chunk)) {
+                    currentCompensator.accept(window.get(i));
+                    uncommit(chunk);
+                }
+            }
+            end = start;
+        }
+        reset();
+    }
+
+    private List<List<I>> readChunks(long start, long end) {
+        Iterator<? extends I> iterator = source.get();
+        for (long skipped = 0; skipped < start * chunkSize && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        List<List<I>> chunks = new ArrayList<>();
+        for (long chunk = start; chunk < end && iterator.hasNext(); chunk++) {
+            chunks.add(nextChunk(iterator));
+        }
+        return chunks;
+    }
+
+    private List<I> nextChunk(Iterator<? extends I> iterator) {
+        List<I> items = new ArrayList<>(chunkSize);
+        while (items.size() < chunkSize && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return items;
+    }
+
+    private synchronized boolean isCommitted(long chunk) {
+        if (chunk < watermark) {
+            return true;
+        }
+        long offset = chunk - watermark;
+        return offset <= Integer.MAX_VALUE && committedAhead.get((int) offset);
+    }
+
+    private synchronized void commit(long chunk, int size) {
+        long offset = chunk - watermark;
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many chunks committed ahead of chunk " + watermark);
+        }
+        committedAhead.set((int) offset);
+        int contiguous = committedAhead.nextClearBit(0);
+        if (contiguous > 0) {
+            watermark += contiguous;
+            BitSet remaining = committedAhead.get(contiguous, Math.max(contiguous, committedAhead.length()));
+            committedAhead.clear();
+            committedAhead.or(remaining);
+            recordChunks(contiguous, true);
+        }
+        committedItems += size;
+    }
+
+    private synchronized void uncommit(long chunk) {
+        if (chunk >= watermark) {
+            committedAhead.clear((int) (chunk - watermark));
+            return;
+        }
+        int shift = (int) (watermark - chunk);
+        BitSet shifted = new BitSet();
+        shifted.set(1, shift);
+        committedAhead.stream().forEach(offset -> shifted.set(offset + shift));
+        committedAhead.clear();
+        committedAhead.or(shifted);
+        watermark = chunk;
+        recordChunks(shift, false);
+    }
+
+    private void recordChunks(int chunks, boolean committed) {
+        Step<Long> currentStep = step;
+        if (currentStep != null) {
+            for (int i = 0; i < chunks; i++) {
+                currentStep.recordChunk(committed);
+            }
+        }
+    }
+
+    private synchronized void restoreWatermark() {
+        Step<Long> currentStep = step;
+        long restored = currentStep == null ? 0 : currentStep.takeRestoredChunks();
+        if (restored > watermark && committedAhead.isEmpty()) {
+            watermark = restored;
+        }
+    }
+
+    private synchronized void resetCommittedItems() {
+        committedItems = 0;
+    }
+
+    private synchronized void addCommittedItems(int size) {
+        committedItems += size;
+    }
+
+    private synchronized long lastCommittedChunk() {
+        return watermark + committedAhead.length();
+    }
+
+    private synchronized void reset() {
+        watermark = 0;
+        committedAhead.clear();
+        committedItems = 0;
+    }
+
+    private static void checkNotInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Batch processing was interrupted");
+        }
+    }
+
+    public static <I> BatchStep<I> of(Supplier<? extends Iterator<? extends I>> source,
+                                      int chunkSize,
+                                      Consumer<List<I>> processor) {
+        return new BatchStep<>(source, chunkSize, processor, null);
+    }
+
+    public static <I> BatchStep<I> ofSpliterator(Supplier<? extends Spliterator<? extends I>> source,
+                                                 int chunkSize,
+                                                 Consumer<List<I>> processor,
+                                                 @Nullable Consumer<List<I>> compensator) {
+        return new BatchStep<>(() -> Spliterators.iterator(source.get()), chunkSize, processor, compensator);
+    }
+}
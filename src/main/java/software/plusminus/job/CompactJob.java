@@ -0,0 +1,199 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import javax.annotation.Nullable;
+
+public class CompactJob {
+
+    private static final JobStatus[] STATUSES = JobStatus.values();
+    private static final boolean[] RUNNABLE = new boolean[STATUSES.length];
+
+    static {
+        for (JobStatus status : STATUSES) {
+            RUNNABLE[status.ordinal()] = status.isAllowed(JobAction.RUN);
+        }
+    }
+
+    private final IntConsumer run;
+    @Nullable
+    private final IntConsumer rollback;
+    private final byte[] statuses;
+    private final byte[] savedStatuses;
+    private final StatusHistogram histogram = new StatusHistogram();
+    private int[] progress;
+    private int progressSize;
+    @Nullable
+    private Consumer<JobStatus> listener;
+    @Nullable
+    private ObjIntConsumer<JobStatus> stepListener;
+    private boolean busy;
+    @Getter
+    private volatile JobStatus status;
+
+    public CompactJob(int size, IntConsumer run, @Nullable IntConsumer rollback) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        this.run = run;
+        this.rollback = rollback;
+        statuses = new byte[size];
+        savedStatuses = new byte[size];
+        Arrays.fill(statuses, (byte) JobStatus.READY.ordinal());
+        Arrays.fill(savedStatuses, (byte) JobStatus.READY.ordinal());
+        histogram.add(JobStatus.READY, size);
+        progress = new int[Math.min(size, 16)];
+        status = histogram.max(JobStatus.READY);
+    }
+
+    public synchronized void setListener(@Nullable Consumer<JobStatus> newListener) {
+        listener = newListener;
+    }
+
+    public synchronized void setStepListener(@Nullable ObjIntConsumer<JobStatus> newStepListener) {
+        stepListener = newStepListener;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public synchronized JobStatus getStatus(int step) {
+        return STATUSES[statuses[step]];
+    }
+
+    public synchronized int count(JobStatus countedStatus) {
+        return histogram.count(countedStatus);
+    }
+
+    public synchronized int nextRunnable(int from) {
+        for (int i = Math.max(from, 0); i < statuses.length; i++) {
+            if (RUNNABLE[statuses[i]]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized int getProgressSize() {
+        return progressSize;
+    }
+
+    public void run() {
+        begin(JobAction.RUN);
+        try {
+            for (int step = claimRunnable(0); step >= 0; step = claimRunnable(step + 1)) {
+                try {
+                    run.accept(step);
+                } catch (RuntimeException e) {
+                    complete(step, JobStatus.ERROR);
+                    throw e;
+                }
+                complete(step, JobStatus.SUCCESS);
+            }
+        } finally {
+            end();
+        }
+    }
+
+    public void rollback() {
+        begin(JobAction.ROLLBACK);
+        try {
+            for (int step = claimRollback(); step >= 0; step = claimRollback()) {
+                try {
+                    if (rollback != null) {
+                        rollback.accept(step);
+                    }
+                } catch (RuntimeException e) {
+                    complete(step, JobStatus.ERROR_ROLLBACK);
+                    throw e;
+                }
+                complete(step, rollback == null ? JobStatus.NO_ROLLBACK : JobStatus.SUCCESS_ROLLBACK);
+            }
+        } finally {
+            end();
+        }
+    }
+
+    public synchronized void skip(int step) {
+        getStatus(step).checkAction(JobAction.SKIP);
+        changeStatus(step, JobStatus.SKIPPED);
+    }
+
+    public synchronized void unskip(int step) {
+        if (getStatus(step) == JobStatus.SKIPPED) {
+            changeStatus(step, STATUSES[savedStatuses[step]]);
+        }
+    }
+
+    private synchronized void begin(JobAction action) {
+        if (busy) {
+            throw new IllegalStateException("Cannot " + action + ": the job is already running or rolling back");
+        }
+        status.checkAction(action);
+        busy = true;
+    }
+
+    private synchronized void end() {
+        busy = false;
+    }
+
+    private synchronized int claimRunnable(int from) {
+        int step = nextRunnable(from);
+        if (step >= 0) {
+            changeStatus(step, JobStatus.RUNNING);
+        }
+        return step;
+    }
+
+    private synchronized int claimRollback() {
+        if (progressSize == 0) {
+            return -1;
+        }
+        int step = progress[progressSize - 1];
+        changeStatus(step, JobStatus.ROLLBACK);
+        return step;
+    }
+
+    private synchronized void complete(int step, JobStatus newStatus) {
+        changeStatus(step, newStatus);
+        if (newStatus == JobStatus.SUCCESS) {
+            addProgress(step);
+        } else if (newStatus == JobStatus.SUCCESS_ROLLBACK || newStatus == JobStatus.NO_ROLLBACK) {
+            progressSize--;
+        }
+    }
+
+    private void addProgress(int step) {
+        if (progressSize == progress.length) {
+            progress = Arrays.copyOf(progress, Math.min(statuses.length, Math.max(16, progressSize * 2)));
+        }
+        progress[progressSize++] = step;
+    }
+
+    private void changeStatus(int step, JobStatus newStatus) {
+        JobStatus oldStatus = STATUSES[statuses[step]];
+        if (oldStatus == newStatus) {
+            return;
+        }
+        statuses[step] = (byte) newStatus.ordinal();
+        if (JobStatus.SAVED_STATUSES.contains(newStatus)) {
+            savedStatuses[step] = (byte) newStatus.ordinal();
+        }
+        histogram.move(oldStatus, newStatus);
+        if (stepListener != null) {
+            stepListener.accept(newStatus, step);
+        }
+        JobStatus newJobStatus = histogram.max(JobStatus.READY);
+        if (newJobStatus != status) {
+            status = newJobStatus;
+            if (listener != null) {
+                listener.accept(newJobStatus);
+            }
+        }
+    }
+}
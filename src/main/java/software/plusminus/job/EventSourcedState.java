@@ -0,0 +1,121 @@
+package software.plusminus.job;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+class EventSourcedState {
+
+    private final byte[] savedStatuses;
+    private final byte[][] results;
+    private final long[] chunks;
+    private final Set<Integer> progress = new LinkedHashSet<>();
+    private final Set<Integer> reset = new HashSet<>();
+    private long sequence;
+
+    EventSourcedState(int size) {
+        this.savedStatuses = new byte[size];
+        this.results = new byte[size][];
+        this.chunks = new long[size];
+    }
+
+    static EventSourcedState of(JobSnapshot snapshot) {
+        EventSourcedState state = new EventSourcedState(snapshot.size());
+        System.arraycopy(snapshot.savedStatuses(), 0, state.savedStatuses, 0, snapshot.size());
+        System.arraycopy(snapshot.results(), 0, state.results, 0, snapshot.size());
+        System.arraycopy(snapshot.chunks(), 0, state.chunks, 0, snapshot.size());
+        for (int stepIndex : snapshot.getProgress()) {
+            state.progress.add(stepIndex);
+        }
+        state.sequence = snapshot.getSequence();
+        return state;
+    }
+
+    void apply(JobEvent event) {
+        if (event.getSequence() <= sequence) {
+            return;
+        }
+        sequence = event.getSequence();
+        if (event.isJobEvent()) {
+            return;
+        }
+        if (event.getStepIndex() < 0 || event.getStepIndex() >= savedStatuses.length) {
+            throw new IllegalStateException("Event " + event + " does not match job's steps");
+        }
+        apply(event.getType(), event.getStepIndex(), event.getTo(), event.getResult());
+    }
+
+    void apply(JournalRecord record) {
+        apply(record.getType(), record.getStepIndex(), record.getStatus(), null);
+    }
+
+    private void apply(JournalRecordType type, int stepIndex, @Nullable JobStatus to, @Nullable byte[] result) {
+        switch (type) {
+            case STATUS:
+                if (to != null && JobStatus.SAVED_STATUSES.contains(to)) {
+                    savedStatuses[stepIndex] = (byte) (to.ordinal() + 1);
+                    reset.remove(stepIndex);
+                } else if (to == JobStatus.READY && savedStatuses[stepIndex] != 0) {
+                    savedStatuses[stepIndex] = 0;
+                    reset.add(stepIndex);
+                }
+                if (to == JobStatus.SUCCESS) {
+                    results[stepIndex] = result;
+                }
+                break;
+            case PROGRESS:
+                progress.add(stepIndex);
+                break;
+            case ROLLBACK:
+                progress.remove(stepIndex);
+                results[stepIndex] = null;
+                chunks[stepIndex] = 0;
+                break;
+            case CHUNK:
+                chunks[stepIndex]++;
+                break;
+            case CHUNK_ROLLBACK:
+                chunks[stepIndex] = Math.max(0, chunks[stepIndex] - 1);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    JobSnapshot snapshot() {
+        int[] progressIndices = progress.stream().mapToInt(Integer::intValue).toArray();
+        return new JobSnapshot(sequence, savedStatuses, progressIndices, results, chunks);
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int size() {
+        return savedStatuses.length;
+    }
+
+    @Nullable
+    JobStatus getSavedStatus(int stepIndex) {
+        int ordinal = savedStatuses[stepIndex];
+        return ordinal == 0 ? null : JobStatus.values()[ordinal - 1];
+    }
+
+    @Nullable
+    byte[] getResult(int stepIndex) {
+        return results[stepIndex];
+    }
+
+    long getChunks(int stepIndex) {
+        return chunks[stepIndex];
+    }
+
+    Set<Integer> getReset() {
+        return reset;
+    }
+
+    Set<Integer> getProgress() {
+        return progress;
+    }
+}
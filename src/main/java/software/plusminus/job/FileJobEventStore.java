@@ -0,0 +1,280 @@
+package software.plusminus.job;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+public class FileJobEventStore implements JobEventStore {
+
+    static final int MAGIC = 0x504D4A45;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FIXED_RECORD_SIZE = 28;
+    private static final JournalRecordType[] TYPES = JournalRecordType.values();
+    private static final JobStatus[] STATUSES = JobStatus.values();
+    private static final JobAction[] ACTIONS = JobAction.values();
+
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final boolean sync;
+    private long position;
+    private long lastSequence;
+    @Nullable
+    private JobSnapshot snapshot;
+    private long snapshotOffset = HEADER_SIZE;
+    private boolean closed;
+
+    public FileJobEventStore(Path directory) {
+        this(directory, false);
+    }
+
+    public FileJobEventStore(Path directory, boolean sync) {
+        this.sync = sync;
+        this.snapshotFile = directory.resolve("snapshot.bin");
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve("events.log"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.write(header, 0);
+                position = HEADER_SIZE;
+            } else {
+                checkHeader();
+                if (Files.exists(snapshotFile)) {
+                    readSnapshot();
+                }
+                position = scan();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void append(JobEvent event) {
+        checkOpen();
+        if (event.getSequence() <= lastSequence) {
+            throw new IllegalStateException("Cannot append event " + event.getSequence()
+                    + ": the store already has event " + lastSequence);
+        }
+        byte[] result = event.getResult();
+        int size = FIXED_RECORD_SIZE + (result == null ? 0 : result.length);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + size);
+        buffer.putInt(size)
+                .putLong(event.getSequence())
+                .put((byte) event.getType().ordinal())
+                .putInt(event.getStepIndex())
+                .put(ordinal(event.getFrom()))
+                .put(ordinal(event.getTo()))
+                .put((byte) event.getAction().ordinal())
+                .putLong(event.getTimestamp())
+                .putInt(result == null ? -1 : result.length);
+        if (result != null) {
+            buffer.put(result);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastSequence = event.getSequence();
+    }
+
+    @Override
+    public synchronized List<JobEvent> readAfter(long sequence) {
+        checkOpen();
+        long start = snapshot != null && snapshot.getSequence() <= sequence ? snapshotOffset : HEADER_SIZE;
+        List<JobEvent> events = new ArrayList<>();
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, position - start);
+            while (buffer.hasRemaining()) {
+                JobEvent event = decode(buffer);
+                if (event.getSequence() > sequence) {
+                    events.add(event);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return events;
+    }
+
+    @Override
+    public synchronized void saveSnapshot(JobSnapshot newSnapshot) {
+        checkOpen();
+        long offset = newSnapshot.getSequence() == lastSequence ? position : HEADER_SIZE;
+        Path temp = snapshotFile.resolveSibling("snapshot.tmp");
+        try {
+            channel.force(false);
+            try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                         Channels.newOutputStream(snapshotChannel)))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(newSnapshot.getSequence());
+                data.writeLong(offset);
+                data.writeInt(newSnapshot.size());
+                data.write(newSnapshot.savedStatuses());
+                int[] progress = newSnapshot.getProgress();
+                data.writeInt(progress.length);
+                for (int stepIndex : progress) {
+                    data.writeInt(stepIndex);
+                }
+                for (byte[] result : newSnapshot.results()) {
+                    data.writeInt(result == null ? -1 : result.length);
+                    if (result != null) {
+                        data.write(result);
+                    }
+                }
+                for (long chunks : newSnapshot.chunks()) {
+                    data.writeLong(chunks);
+                }
+                data.flush();
+                snapshotChannel.force(false);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        snapshot = newSnapshot;
+        snapshotOffset = offset;
+    }
+
+    @Nullable
+    @Override
+    public synchronized JobSnapshot loadSnapshot() {
+        checkOpen();
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IllegalStateException("Not a job event log or unsupported version");
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        try (InputStream input = Files.newInputStream(snapshotFile);
+             DataInputStream data = new DataInputStream(input)) {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                throw new IllegalStateException("Not a job snapshot or unsupported version");
+            }
+            long sequence = data.readLong();
+            long offset = data.readLong();
+            byte[] savedStatuses = new byte[data.readInt()];
+            data.readFully(savedStatuses);
+            int[] progress = new int[data.readInt()];
+            for (int i = 0; i < progress.length; i++) {
+                progress[i] = data.readInt();
+            }
+            byte[][] results = new byte[savedStatuses.length][];
+            for (int i = 0; i < results.length; i++) {
+                int length = data.readInt();
+                if (length >= 0) {
+                    results[i] = new byte[length];
+                    data.readFully(results[i]);
+                }
+            }
+            long[] chunks = new long[savedStatuses.length];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = data.readLong();
+            }
+            snapshot = new JobSnapshot(sequence, savedStatuses, progress, results, chunks);
+            snapshotOffset = Math.min(offset, channel.size());
+            lastSequence = sequence;
+        }
+    }
+
+    private long scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, snapshotOffset, size - snapshotOffset);
+        long end = snapshotOffset;
+        while (buffer.remaining() >= Integer.BYTES + FIXED_RECORD_SIZE) {
+            int recordSize = buffer.getInt(buffer.position());
+            if (recordSize < FIXED_RECORD_SIZE || buffer.remaining() - Integer.BYTES < recordSize) {
+                break;
+            }
+            lastSequence = Math.max(lastSequence, decode(buffer).getSequence());
+            end = snapshotOffset + buffer.position();
+        }
+        if (end < size) {
+            channel.truncate(end);
+        }
+        return end;
+    }
+
+    private static JobEvent decode(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        long sequence = buffer.getLong();
+        JournalRecordType type = TYPES[buffer.get()];
+        int stepIndex = buffer.getInt();
+        JobStatus from = status(buffer.get());
+        JobStatus to = status(buffer.get());
+        JobAction action = ACTIONS[buffer.get()];
+        long timestamp = buffer.getLong();
+        int resultLength = buffer.getInt();
+        byte[] result = null;
+        if (resultLength >= 0) {
+            if (resultLength != size - FIXED_RECORD_SIZE) {
+                throw new IllegalStateException("Corrupted event " + sequence);
+            }
+            result = new byte[resultLength];
+            buffer.get(result);
+        }
+        return new JobEvent(sequence, type, stepIndex, from, to, action, timestamp, result);
+    }
+
+    private static byte ordinal(@Nullable JobStatus status) {
+        return (byte) (status == null ? 0 : status.ordinal() + 1);
+    }
+
+    @Nullable
+    private static JobStatus status(byte ordinal) {
+        return ordinal == 0 ? null : STATUSES[ordinal - 1];
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Event store is closed");
+        }
+    }
+}
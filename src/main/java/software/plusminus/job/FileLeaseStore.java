@@ -0,0 +1,177 @@
+package software.plusminus.job;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+public class FileLeaseStore implements LeaseStore {
+
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final Path lockFile;
+    private final Path tempFile;
+    private final Object monitor;
+
+    public FileLeaseStore(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+        this.lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+        this.tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        this.monitor = MONITORS.computeIfAbsent(this.file, key -> new Object());
+    }
+
+    @Nullable
+    @Override
+    public Lease tryAcquire(String key, String owner, Duration ttl) {
+        checkName(key);
+        checkName(owner);
+        return update(leases -> {
+            long now = System.currentTimeMillis();
+            Lease current = leases.get(key);
+            if (current != null && !current.isExpired(now) && !current.getOwner().equals(owner)) {
+                return null;
+            }
+            long token = current == null ? 1 : current.getToken() + 1;
+            Lease acquired = new Lease(key, owner, token, now + ttl.toMillis());
+            leases.put(key, acquired);
+            return acquired;
+        });
+    }
+
+    @Override
+    public List<Lease> renew(Collection<Lease> leases, Duration ttl) {
+        if (leases.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return update(stored -> {
+            long now = System.currentTimeMillis();
+            List<Lease> renewed = new ArrayList<>(leases.size());
+            for (Lease lease : leases) {
+                Lease current = stored.get(lease.getKey());
+                if (isHeldBy(current, lease, now)) {
+                    Lease extended = new Lease(lease.getKey(), lease.getOwner(), lease.getToken(),
+                            now + ttl.toMillis());
+                    stored.put(lease.getKey(), extended);
+                    renewed.add(extended);
+                }
+            }
+            return renewed;
+        });
+    }
+
+    @Override
+    public void release(Lease lease) {
+        update(stored -> {
+            Lease current = stored.get(lease.getKey());
+            if (current != null && current.getToken() == lease.getToken()) {
+                stored.put(lease.getKey(), new Lease(lease.getKey(), lease.getOwner(), lease.getToken(), 0));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isCurrent(Lease lease) {
+        Map<String, Lease> stored = locked(true, this::read);
+        return isHeldBy(stored.get(lease.getKey()), lease, System.currentTimeMillis());
+    }
+
+    private static boolean isHeldBy(@Nullable Lease current, Lease lease, long now) {
+        return current != null
+                && current.getToken() == lease.getToken()
+                && current.getOwner().equals(lease.getOwner())
+                && !current.isExpired(now);
+    }
+
+    private <R> R update(Function<Map<String, Lease>, R> operation) {
+        return locked(false, () -> {
+            Map<String, Lease> leases = read();
+            R result = operation.apply(leases);
+            write(leases);
+            return result;
+        });
+    }
+
+    private <R> R locked(boolean shared, IoSupplier<R> operation) {
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock(0, Long.MAX_VALUE, shared);
+                try {
+                    return operation.get();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private Map<String, Lease> read() throws IOException {
+        Map<String, Lease> leases = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return leases;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        for (String line : content.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                throw new IllegalStateException("Corrupted lease record: " + line);
+            }
+            Lease lease = new Lease(fields[0], fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            leases.put(lease.getKey(), lease);
+        }
+        return leases;
+    }
+
+    private void write(Map<String, Lease> leases) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Lease lease : leases.values()) {
+            content.append(lease.getKey()).append('\t')
+                    .append(lease.getOwner()).append('\t')
+                    .append(lease.getToken()).append('\t')
+                    .append(lease.getExpiresAt()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void checkName(String name) {
+        if (name.isEmpty() || name.indexOf('\t') >= 0 || name.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Lease keys and owners must be non-empty single-line values "
+                    + "without tabs: " + name);
+        }
+    }
+
+    private interface IoSupplier<R> {
+
+        R get() throws IOException;
+    }
+}
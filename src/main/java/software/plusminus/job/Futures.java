@@ -0,0 +1,53 @@
+package software.plusminus.job;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+
+@UtilityClass
+class Futures {
+
+    <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Nullable
+    Throwable unwrap(@Nullable Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    CancellationException stopped(JobStatus status, @Nullable Throwable cause) {
+        CancellationException exception = new CancellationException("Stopped with status " + status);
+        if (cause != null) {
+            exception.initCause(cause);
+        }
+        return exception;
+    }
+}
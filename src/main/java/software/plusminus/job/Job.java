@@ -1,20 +1,79 @@
 package software.plusminus.job;
 
 import lombok.Getter;
+import lombok.Setter;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
-public class Job {
+public class Job implements AutoCloseable {
 
-    private List<Step<?>> steps = new ArrayList<>();
-    private List<Step<?>> progress = new CopyOnWriteArrayList<>();
+    private final List<Step<?>> steps = new ArrayList<>();
+    private final Progress progress = new Progress();
+    private final StatusHistogram histogram = new StatusHistogram();
+    private final StepGraph graph = new StepGraph();
     @Nullable
     private Consumer<JobStatus> listener;
+    private final List<Consumer<StatusEvent>> eventListeners = new CopyOnWriteArrayList<>();
+    private final Queue<StatusEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock publishing = new ReentrantLock();
+    @Nullable
+    private volatile JobJournal journal;
+    @Nullable
+    private volatile JobEventLog eventLog;
+    @Nullable
+    @Getter
+    @Setter
+    private volatile MetricsSink metricsSink;
+    @Nullable
+    @Getter
+    @Setter
+    private volatile Duration timeout;
+    @Getter
+    @Setter
+    private volatile ResultRetention resultRetention = ResultRetention.KEEP;
+    @Nullable
+    @Getter
+    @Setter
+    private volatile ResultCache resultCache;
+    @Nullable
+    @Getter
+    @Setter
+    private volatile ResourceLimiter resourceLimiter;
+    private final Set<CompletableFuture<Void>> pendingPermits = ConcurrentHashMap.newKeySet();
+    private final Set<Step<?>> invalidated = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private volatile JobStatus stopStatus;
+    @Nullable
+    private volatile Supplier<Boolean> fence;
+    @Nullable
+    private volatile ScheduledFuture<?> deadline;
     @Getter()
     private volatile JobStatus status = JobStatus.INVALID;
 
@@ -26,67 +85,703 @@ public class Job {
         this.listener = listener;
     }
 
-    public <T> void addStep(Step<T> step) {
+    public <T> void addStep(Step<T> step, Step<?>... dependsOn) {
+        checkIsNotNested(step);
+        linkStep(step, dependsOn);
+        publishPending();
+    }
+
+    private synchronized void linkStep(Step<?> step, Step<?>... dependsOn) {
+        for (Step<?> dependency : dependsOn) {
+            if (dependency.getJob() != this) {
+                throw new IllegalArgumentException("Cannot add step: its dependency is not a step of this job");
+            }
+        }
+        step.setIndex(steps.size());
         steps.add(step);
+        graph.add(step, dependsOn);
         step.link(this);
     }
 
+    void addSteps(Step<?>[] newSteps, StepEdges edges) {
+        bindSteps(newSteps, edges);
+        publishPending();
+    }
+
+    private synchronized void bindSteps(Step<?>[] newSteps, StepEdges edges) {
+        int offset = steps.size();
+        steps.addAll(Arrays.asList(newSteps));
+        if (offset == 0) {
+            graph.share(newSteps, edges);
+        }
+        for (int i = 0; i < newSteps.length; i++) {
+            Step<?> step = newSteps[i];
+            step.setIndex(offset + i);
+            int[] stepDependencies = edges.dependencies(i);
+            if (offset > 0 && stepDependencies.length > 0) {
+                Step<?>[] dependencies = new Step<?>[stepDependencies.length];
+                for (int j = 0; j < stepDependencies.length; j++) {
+                    dependencies[j] = steps.get(offset + stepDependencies[j]);
+                }
+                graph.add(step, dependencies);
+            }
+            step.bind(this);
+            histogram.add(step.getStatus());
+        }
+        updateStatus();
+    }
+
+    public Step<Void> addJob(Job subJob, Step<?>... dependsOn) {
+        if (subJob == this) {
+            throw new IllegalArgumentException("Cannot add a job as a step of itself");
+        }
+        Step<Void> step = Step.of(subJob);
+        addStep(step, dependsOn);
+        return step;
+    }
+
+    public synchronized <E> void addPipe(Step<?> producer, Step<?> consumer, Pipe<E> pipe) {
+        if (producer.getJob() != this || consumer.getJob() != this) {
+            throw new IllegalArgumentException("Cannot add pipe: both steps must belong to this job");
+        }
+        graph.addPipe(producer, consumer, pipe);
+    }
+
+    public void addEventListener(Consumer<StatusEvent> eventListener) {
+        eventListeners.add(eventListener);
+    }
+
+    public boolean removeEventListener(Consumer<StatusEvent> eventListener) {
+        return eventListeners.remove(eventListener);
+    }
+
     public boolean removeStep(Step<?> step) {
+        boolean removed = unlinkStep(step);
+        publishPending();
+        return removed;
+    }
+
+    private synchronized boolean unlinkStep(Step<?> step) {
         checkIsNotProgressed(step, "Cannot remove step: already present in job's progress");
-        boolean result = steps.remove(step);
-        if (result) {
-            step.unlink();
-            calculateStatus();
+        checkHasNoPipes(step);
+        if (graph.hasDependents(step)) {
+            throw new IllegalStateException("Cannot remove step: other steps depend on it");
         }
-        return result;
+        int index = steps.indexOf(step);
+        if (index == -1) {
+            return false;
+        }
+        steps.remove(index);
+        for (int i = index; i < steps.size(); i++) {
+            steps.get(i).setIndex(i);
+        }
+        graph.remove(step);
+        step.unlink();
+        histogram.remove(step.getStatus());
+        updateStatus();
+        return true;
     }
 
     public boolean replaceStep(Step<?> from, Step<?> to) {
+        checkIsNotNested(to);
+        boolean replaced = relinkStep(from, to);
+        publishPending();
+        return replaced;
+    }
+
+    private synchronized boolean relinkStep(Step<?> from, Step<?> to) {
         checkIsNotProgressed(from, "Cannot replace steps: "
                 + "the 'from' step is already present in job's progress");
+        checkHasNoPipes(from);
         int index = steps.indexOf(from);
         if (index == -1) {
             return false;
         }
         steps.set(index, to);
+        to.setIndex(index);
+        graph.replace(from, to);
         from.unlink();
+        histogram.remove(from.getStatus());
         to.link(this);
         return true;
     }
 
     public void run() {
+        if (graph.hasPipes()) {
+            throw new IllegalStateException("Cannot run piped steps sequentially: use run(executor)");
+        }
         List<Step<?>> stepsToRun = stepsToRun();
-        start(JobAction.RUN, stepsToRun);
+        long started = start(JobAction.RUN, stepsToRun);
         try {
-            stepsToRun.forEach(Step::run);
+            stepsToRun.forEach(this::runStep);
         } finally {
-            end(stepsToRun);
+            end(JobAction.RUN, stepsToRun, started);
         }
     }
 
+    public void run(Executor executor) {
+        Futures.join(runAsync(executor));
+    }
+
+    public CompletableFuture<Void> runAsync(Executor executor) {
+        List<Step<?>> stepsToRun = stepsToRunWithProducers();
+        preparePipes(stepsToRun, executor);
+        long started = start(JobAction.RUN, stepsToRun);
+        CompletableFuture<Void> future;
+        try {
+            future = new StepScheduler(stepsToRun, graph::blockingDependencies, step -> runStepAsync(step, executor),
+                    executor, Integer.MAX_VALUE, FailurePolicy.STOP).start();
+        } catch (RuntimeException e) {
+            end(JobAction.RUN, stepsToRun, started);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> end(JobAction.RUN, stepsToRun, started));
+    }
+
     public void rollback() {
-        start(JobAction.ROLLBACK, progress);
+        long started = start(JobAction.ROLLBACK, progress);
+        progressFailedSubJobs();
         try {
-            while (!progress.isEmpty()) {
-                int index = progress.size() - 1;
-                Step<?> step = progress.get(index);
+            rollbackProgress();
+        } finally {
+            end(JobAction.ROLLBACK, progress, started);
+        }
+    }
+
+    public CompletableFuture<Void> rollbackAsync(Executor executor) {
+        long started = start(JobAction.ROLLBACK, progress);
+        progressFailedSubJobs();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> rollbackProgress(executor, future, null));
+        } catch (RuntimeException e) {
+            end(JobAction.ROLLBACK, progress, started);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> end(JobAction.ROLLBACK, progress, started));
+    }
+
+    public void rollback(Executor executor, int parallelism, FailurePolicy failurePolicy) {
+        Futures.join(rollbackAsync(executor, parallelism, failurePolicy));
+    }
+
+    public CompletableFuture<Void> rollbackAsync(Executor executor, int parallelism, FailurePolicy failurePolicy) {
+        List<Step<?>> stepsToRollback = new ArrayList<>();
+        progress.forEach(stepsToRollback::add);
+        long started = start(JobAction.ROLLBACK, stepsToRollback);
+        stepsToRollback.addAll(progressFailedSubJobs());
+        CompletableFuture<Void> future;
+        try {
+            future = new StepScheduler(stepsToRollback, graph::dependents, step -> rollbackStep(step, executor),
+                    executor, parallelism, failurePolicy).start();
+        } catch (RuntimeException e) {
+            end(JobAction.ROLLBACK, stepsToRollback, started);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> end(JobAction.ROLLBACK, stepsToRollback, started));
+    }
+
+    public void cancel() {
+        stop(JobStatus.CANCELLED);
+    }
+
+    public List<Step<?>> invalidate(Step<?> step) {
+        if (step.getJob() != this) {
+            throw new IllegalArgumentException("Cannot invalidate step: it is not a step of this job");
+        }
+        return invalidate(Collections.singletonList(step));
+    }
+
+    public List<Step<?>> invalidateChanged() {
+        List<Step<?>> changed = snapshot().stream()
+                .filter(Step::isStale)
+                .collect(Collectors.toList());
+        return invalidate(changed);
+    }
+
+    private List<Step<?>> invalidate(Collection<Step<?>> changed) {
+        List<Step<?>> stale = downstream(changed);
+        Set<Step<?>> staleSet = new HashSet<>(stale);
+        List<Step<?>> stepsToRollback = new ArrayList<>();
+        progress.forEach(step -> {
+            if (staleSet.contains(step)) {
+                stepsToRollback.add(step);
+            }
+        });
+        Collections.reverse(stepsToRollback);
+        if (stepsToRollback.isEmpty()) {
+            return stale;
+        }
+        long started = start(JobAction.ROLLBACK, stepsToRollback);
+        try {
+            for (Step<?> step : stepsToRollback) {
                 step.rollback();
-                progress.remove(index);
+                removeProgress(step);
             }
         } finally {
-            end(progress);
+            end(JobAction.ROLLBACK, stepsToRollback, started);
+        }
+        stepsToRollback.forEach(Step::reset);
+        invalidated.addAll(stepsToRollback);
+        calculateStatus();
+        return stale;
+    }
+
+    private synchronized List<Step<?>> downstream(Collection<Step<?>> changed) {
+        Set<Step<?>> visited = new HashSet<>(changed);
+        List<Step<?>> queue = new ArrayList<>(changed);
+        for (int i = 0; i < queue.size(); i++) {
+            for (Step<?> dependent : graph.dependents(queue.get(i))) {
+                if (visited.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        queue.sort(Comparator.comparingInt(Step::getIndex));
+        return queue;
+    }
+
+    public void attachJournal(JobJournal newJournal) {
+        EventSourcedState state = new EventSourcedState(stepCount());
+        for (JournalRecord record : newJournal.read()) {
+            if (record.getStepIndex() < 0 || record.getStepIndex() >= state.size()) {
+                throw new IllegalStateException("Cannot attach journal: it does not match job's steps");
+            }
+            state.apply(record);
+        }
+        restoreJournal(newJournal, state);
+        publishPending();
+    }
+
+    private synchronized void restoreJournal(JobJournal newJournal, EventSourcedState state) {
+        if (!progress.isEmpty()) {
+            throw new IllegalStateException("Cannot attach journal: job already has progress");
+        }
+        restore(state, "Cannot attach journal: job's steps changed while reading it");
+        journal = newJournal;
+    }
+
+    public void attachEventStore(JobEventStore store) {
+        attachEventStore(store, JobEventLog.DEFAULT_SNAPSHOT_INTERVAL, false);
+    }
+
+    public void attachEventStore(JobEventStore store, int snapshotInterval, boolean recordResults) {
+        EventSourcedState state = JobEventLog.replay(store, stepCount());
+        restoreEventStore(new JobEventLog(store, state, snapshotInterval, recordResults), state);
+        publishPending();
+    }
+
+    private synchronized void restoreEventStore(JobEventLog newLog, EventSourcedState state) {
+        if (!progress.isEmpty()) {
+            throw new IllegalStateException("Cannot attach event store: job already has progress");
+        }
+        restore(state, "Cannot attach event store: job's steps changed while replaying it");
+        eventLog = newLog;
+    }
+
+    private void restore(EventSourcedState state, String stepsChangedMessage) {
+        if (state.size() != steps.size()) {
+            throw new IllegalStateException(stepsChangedMessage);
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            Step<?> step = steps.get(i);
+            JobStatus savedStatus = state.getSavedStatus(i);
+            if (savedStatus != null) {
+                step.restore(savedStatus);
+            }
+            byte[] result = state.getResult(i);
+            if (result != null) {
+                step.restoreResult(JobEventLog.deserialize(result));
+            }
+            step.restoreChunks(state.getChunks(i));
+        }
+        state.getProgress().forEach(index -> progress.add(steps.get(index)));
+        state.getReset().forEach(index -> invalidated.add(steps.get(index)));
+        for (Step<?> step : steps) {
+            if (step.getStatus() == JobStatus.SUCCESS && !progress.contains(step)) {
+                progress.add(step);
+            }
+        }
+    }
+
+    private void runStep(Step<?> step) {
+        JobStatus stopped = checkStopped();
+        if (stopped != null) {
+            step.abort(stopped);
+            throw Futures.stopped(stopped, null);
+        }
+        ResourceLimiter limiter = resourceLimiter;
+        if (limiter == null || step.getResources().isEmpty()) {
+            step.run();
+            return;
+        }
+        long requested = System.nanoTime();
+        CompletableFuture<Void> permits = acquirePermits(step, limiter);
+        try {
+            Futures.join(permits);
+            reportThrottle(step, requested);
+        } catch (RuntimeException e) {
+            JobStatus stoppedWhileWaiting = stopStatus;
+            if (stoppedWhileWaiting != null) {
+                step.abort(stoppedWhileWaiting);
+            }
+            throw e;
+        } finally {
+            pendingPermits.remove(permits);
+        }
+        try {
+            JobStatus stoppedWhileWaiting = checkStopped();
+            if (stoppedWhileWaiting != null) {
+                step.abort(stoppedWhileWaiting);
+                throw Futures.stopped(stoppedWhileWaiting, null);
+            }
+            step.run();
+        } finally {
+            limiter.release(permits);
+        }
+    }
+
+    private CompletionStage<?> runStepAsync(Step<?> step, Executor executor) {
+        JobStatus stopped = checkStopped();
+        CompletionStage<?> stage;
+        if (stopped != null) {
+            step.abort(stopped);
+            stage = Futures.failed(Futures.stopped(stopped, null));
+        } else {
+            ResourceLimiter limiter = resourceLimiter;
+            stage = limiter == null || step.getResources().isEmpty()
+                    ? step.runAsync(executor)
+                    : runLimitedAsync(step, executor, limiter);
+        }
+        if (graph.hasPipes(step)) {
+            stage = stage.whenComplete((result, error) -> closePipes(step, error));
+        }
+        return stage;
+    }
+
+    private CompletionStage<?> runLimitedAsync(Step<?> step, Executor executor, ResourceLimiter limiter) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        long requested = System.nanoTime();
+        CompletableFuture<Void> permits = acquirePermits(step, limiter);
+        permits.whenComplete((ignored, error) -> {
+            pendingPermits.remove(permits);
+            if (error != null) {
+                JobStatus stopped = stopStatus;
+                if (stopped != null) {
+                    step.abort(stopped);
+                }
+                result.completeExceptionally(error);
+                return;
+            }
+            reportThrottle(step, requested);
+            try {
+                executor.execute(() -> runWithPermits(step, executor, limiter, permits, result));
+            } catch (RejectedExecutionException e) {
+                limiter.release(permits);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void runWithPermits(Step<?> step, Executor executor, ResourceLimiter limiter,
+                                CompletableFuture<Void> permits, CompletableFuture<Object> result) {
+        JobStatus stopped = checkStopped();
+        CompletionStage<?> stage;
+        try {
+            if (stopped != null) {
+                step.abort(stopped);
+                stage = Futures.failed(Futures.stopped(stopped, null));
+            } else {
+                stage = step.runAsync(executor);
+            }
+        } catch (Throwable e) {
+            stage = Futures.failed(e);
+        }
+        stage.whenComplete((value, error) -> {
+            limiter.release(permits);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> acquirePermits(Step<?> step, ResourceLimiter limiter) {
+        CompletableFuture<Void> permits = limiter.acquire(step.getResources());
+        pendingPermits.add(permits);
+        JobStatus stopped = stopStatus;
+        if (stopped != null) {
+            permits.completeExceptionally(Futures.stopped(stopped, null));
+        }
+        return permits;
+    }
+
+    private void reportThrottle(Step<?> step, long requested) {
+        MetricsSink sink = metricsSink;
+        if (sink != null) {
+            sink.stepThrottled(step.getName(), System.nanoTime() - requested);
+        }
+    }
+
+    private List<Step<?>> stepsToRunWithProducers() {
+        List<Step<?>> stepsToRun = stepsToRun();
+        List<Step<?>> completedProducers = completedProducers(stepsToRun);
+        if (completedProducers.isEmpty()) {
+            return stepsToRun;
         }
+        invalidate(completedProducers);
+        return stepsToRun();
+    }
+
+    private synchronized List<Step<?>> completedProducers(List<Step<?>> stepsToRun) {
+        Set<Step<?>> completed = new LinkedHashSet<>();
+        for (Step<?> step : stepsToRun) {
+            for (Step<?> producer : graph.producers(step)) {
+                if (progress.contains(producer)) {
+                    completed.add(producer);
+                }
+            }
+        }
+        return new ArrayList<>(completed);
+    }
+
+    private synchronized void preparePipes(List<Step<?>> stepsToRun, Executor executor) {
+        long pipedSteps = stepsToRun.stream().filter(graph::hasPipes).count();
+        int threads = maxThreads(executor);
+        if (pipedSteps > threads) {
+            throw new IllegalStateException("Cannot run " + pipedSteps + " piped steps on an executor with "
+                    + threads + " threads: every piped step needs its own thread");
+        }
+        for (Step<?> step : stepsToRun) {
+            if (!stepsToRun.containsAll(graph.producers(step))) {
+                throw new IllegalStateException("Cannot run a piped step without the step producing its input");
+            }
+            graph.pipesFrom(step).forEach(Pipe::reset);
+        }
+    }
+
+    private static int maxThreads(Executor executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            return pool.getQueue().remainingCapacity() == Integer.MAX_VALUE
+                    ? pool.getCorePoolSize()
+                    : pool.getMaximumPoolSize();
+        }
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private void closePipes(Step<?> step, @Nullable Throwable error) {
+        graph.pipesFrom(step).forEach(pipe -> pipe.closeSending(Futures.unwrap(error)));
+        graph.pipesTo(step).forEach(Pipe::closeReceiving);
+    }
+
+    boolean validate() {
+        stepsToRun().forEach(Step::validate);
+        calculateStatus();
+        return status != JobStatus.INVALID;
+    }
+
+    @Nullable
+    JobStatus getStopStatus() {
+        return stopStatus;
+    }
+
+    @SuppressWarnings("checkstyle:HiddenField")
+    void setFence(@Nullable Supplier<Boolean> fence) {
+        this.fence = fence;
+    }
+
+    private boolean isFenced() {
+        Supplier<Boolean> currentFence = fence;
+        return currentFence != null && !currentFence.get();
+    }
+
+    @Nullable
+    private JobStatus checkStopped() {
+        if (stopStatus == null && isFenced()) {
+            stop(JobStatus.CANCELLED);
+        }
+        return stopStatus;
+    }
+
+    void stop(JobStatus reason) {
+        stopStatus = reason;
+        for (CompletableFuture<Void> permits : pendingPermits) {
+            permits.completeExceptionally(Futures.stopped(reason, null));
+        }
+        List<Step<?>> running;
+        synchronized (this) {
+            running = steps.stream()
+                    .filter(step -> step.getStatus() == JobStatus.RUNNING)
+                    .collect(Collectors.toList());
+        }
+        running.forEach(step -> step.stop(reason));
+    }
+
+    private CompletionStage<Void> rollbackStep(Step<?> step, Executor executor) {
+        return step.rollbackAsync(executor).thenRun(() -> removeProgress(step));
+    }
+
+    private List<Step<?>> progressFailedSubJobs() {
+        List<Step<?>> failed = snapshot().stream()
+                .filter(Step::hasSubJobProgress)
+                .filter(step -> !progress.contains(step))
+                .collect(Collectors.toList());
+        failed.forEach(this::addProgress);
+        return failed;
+    }
+
+    boolean hasProgress() {
+        return !progress.isEmpty();
+    }
+
+    private void rollbackProgress() {
+        while (!progress.isEmpty()) {
+            Step<?> step = progress.last();
+            step.rollback();
+            removeProgress(step);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void rollbackProgress(Executor executor, CompletableFuture<Void> future, @Nullable Step<?> rolledBack) {
+        try {
+            if (rolledBack != null) {
+                removeProgress(rolledBack);
+            }
+            while (!progress.isEmpty()) {
+                Step<?> step = progress.last();
+                CompletableFuture<Void> stepFuture = step.rollbackAsync(executor);
+                if (!stepFuture.isDone() || stepFuture.isCompletedExceptionally()) {
+                    stepFuture.whenComplete((result, error) -> {
+                        if (error == null) {
+                            rollbackProgress(executor, future, step);
+                        } else {
+                            future.completeExceptionally(error);
+                        }
+                    });
+                    return;
+                }
+                removeProgress(step);
+            }
+            future.complete(null);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    public long getRetainedResultBytes() {
+        return snapshot().stream().mapToLong(Step::getRetainedBytes).sum();
+    }
+
+    public long getSpilledResultBytes() {
+        return snapshot().stream().mapToLong(Step::getSpilledBytes).sum();
+    }
+
+    @Override
+    public void close() {
+        snapshot().forEach(Step::discardResult);
     }
 
     void addProgress(Step<?> step) {
         progress.add(step);
+        record(JournalRecordType.PROGRESS, step, null);
+        discardConsumedResults(step);
+    }
+
+    private void discardConsumedResults(Step<?> step) {
+        for (Step<?> dependency : graph.dependencies(step)) {
+            if (dependency.getEffectiveRetention() == ResultRetention.DISCARD
+                    && graph.dependents(dependency).stream().allMatch(progress::contains)) {
+                dependency.discardResult();
+            }
+        }
+    }
+
+    private void checkIsNotNested(Step<?> step) {
+        Job subJob = step.getSubJob();
+        if (subJob != null && subJob.containsJob(this)) {
+            throw new IllegalArgumentException("Cannot add step: its sub-job contains this job");
+        }
+    }
+
+    private boolean containsJob(Job other) {
+        Set<Job> visited = new HashSet<>();
+        Deque<Job> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Job current = pending.pop();
+            if (current == other) {
+                return true;
+            }
+            if (visited.add(current)) {
+                for (Step<?> step : current.snapshot()) {
+                    Job subJob = step.getSubJob();
+                    if (subJob != null) {
+                        pending.push(subJob);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized int stepCount() {
+        return steps.size();
+    }
+
+    private synchronized List<Step<?>> snapshot() {
+        return new ArrayList<>(steps);
     }
 
-    void listenStep(JobStatus stepStatus) {
+    void recordStatus(Step<?> step, JobStatus savedStatus) {
+        record(JournalRecordType.STATUS, step, savedStatus);
+    }
+
+    void recordChunk(Step<?> step, boolean committed) {
+        record(committed ? JournalRecordType.CHUNK : JournalRecordType.CHUNK_ROLLBACK, step, null);
+    }
+
+    private void removeProgress(Step<?> step) {
+        progress.remove(step);
+        record(JournalRecordType.ROLLBACK, step, null);
+    }
+
+    private void record(JournalRecordType type, Step<?> step, @Nullable JobStatus recordedStatus) {
+        if (isFenced()) {
+            stop(JobStatus.CANCELLED);
+            return;
+        }
+        JobJournal current = journal;
+        if (current != null) {
+            current.append(new JournalRecord(type, step.getIndex(), recordedStatus));
+        }
+        JobEventLog currentLog = eventLog;
+        if (currentLog != null && type != JournalRecordType.STATUS) {
+            currentLog.progress(type, step.getIndex());
+        }
+    }
+
+    void listenStep(Step<?> step, @Nullable JobStatus oldStatus, JobStatus stepStatus) {
+        moveStatus(step, oldStatus, stepStatus);
+        publishPending();
+    }
+
+    private synchronized void moveStatus(Step<?> step, @Nullable JobStatus oldStatus, JobStatus stepStatus) {
+        histogram.move(oldStatus, stepStatus);
+        if (oldStatus != null) {
+            publish(step, oldStatus, stepStatus);
+        }
         if (stepStatus == JobStatus.INVALID) {
             changeStatus(stepStatus);
         } else {
-            calculateStatus();
+            updateStatus();
         }
     }
 
@@ -94,35 +789,115 @@ public class Job {
         if (status == newStatus) {
             return;
         }
+        JobStatus oldStatus = status;
         status = newStatus;
-        if (listener != null) {
-            listener.accept(status);
+        publish(null, oldStatus, newStatus);
+    }
+
+    private void publish(@Nullable Step<?> step, JobStatus oldStatus, JobStatus newStatus) {
+        JobEventLog currentLog = eventLog;
+        if (currentLog != null && !isFenced()) {
+            currentLog.status(step, oldStatus, newStatus);
+        }
+        if (eventListeners.isEmpty() && (step != null || listener == null)) {
+            return;
+        }
+        pendingEvents.add(new StatusEvent(this, step, oldStatus, newStatus, System.currentTimeMillis()));
+    }
+
+    private void publishPending() {
+        if (Thread.holdsLock(this)) {
+            return;
+        }
+        publishing.lock();
+        try {
+            StatusEvent event = pendingEvents.poll();
+            while (event != null) {
+                deliver(event);
+                event = pendingEvents.poll();
+            }
+        } finally {
+            publishing.unlock();
+        }
+    }
+
+    private void deliver(StatusEvent event) {
+        if (event.getStep() == null && listener != null) {
+            listener.accept(event.getNewStatus());
         }
+        eventListeners.forEach(eventListener -> eventListener.accept(event));
     }
 
-    private void start(JobAction action, List<Step<?>> stepsToProcess) {
+    private long start(JobAction action, Iterable<Step<?>> stepsToProcess) {
         stepsToProcess.forEach(Step::validate);
         calculateStatus();
-        status.checkAction(action);
+        if (action != JobAction.RUN || !canRunStale(stepsToProcess)) {
+            status.checkAction(action);
+        }
+        if (action == JobAction.RUN) {
+            stopStatus = null;
+            deadline = Timers.schedule(timeout, () -> stop(JobStatus.TIMEOUT));
+        }
+        long started = metricsSink == null ? 0 : System.nanoTime();
         stepsToProcess.forEach(Step::waiting);
+        return started;
     }
 
-    private void end(List<Step<?>> stepsToProcess) {
+    private boolean canRunStale(Iterable<Step<?>> stepsToProcess) {
+        if (status != JobStatus.SUCCESS) {
+            return false;
+        }
+        boolean any = false;
+        for (Step<?> step : stepsToProcess) {
+            if (step.getStatus() != JobStatus.READY || !invalidated.contains(step)) {
+                return false;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private void end(JobAction action, Iterable<Step<?>> stepsToProcess, long started) {
+        if (action == JobAction.RUN) {
+            Timers.cancel(deadline);
+            invalidated.clear();
+        }
         stepsToProcess.forEach(Step::unwaiting);
+        MetricsSink currentSink = metricsSink;
+        if (currentSink == null || started == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        if (action == JobAction.RUN) {
+            currentSink.jobRun(status, elapsed);
+        } else {
+            currentSink.jobRollback(status, elapsed);
+        }
     }
 
     private void calculateStatus() {
-        JobStatus calculatedStatus = JobStatus.max(steps, JobStatus.READY);
+        updateStatus();
+        publishPending();
+    }
+
+    private synchronized void updateStatus() {
+        JobStatus calculatedStatus = histogram.max(JobStatus.READY);
         changeStatus(calculatedStatus);
     }
 
-    private List<Step<?>> stepsToRun() {
+    private synchronized List<Step<?>> stepsToRun() {
         return steps.stream()
                 .filter(step -> step.getStatus() != JobStatus.SKIPPED)
                 .filter(step -> !progress.contains(step))
                 .collect(Collectors.toList());
     }
 
+    private void checkHasNoPipes(Step<?> step) {
+        if (graph.hasPipes(step)) {
+            throw new IllegalStateException("Cannot change step: it is connected to other steps with a pipe");
+        }
+    }
+
     private void checkIsNotProgressed(Step<?> step, String errorMessage) {
         if (progress.contains(step)) {
             throw new IllegalStateException(errorMessage);
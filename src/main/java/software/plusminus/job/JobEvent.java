@@ -0,0 +1,87 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+public class JobEvent {
+
+    public static final int JOB_INDEX = -1;
+
+    @Getter
+    private final long sequence;
+    @Getter
+    private final JournalRecordType type;
+    @Getter
+    private final int stepIndex;
+    @Getter
+    @Nullable
+    private final JobStatus from;
+    @Getter
+    @Nullable
+    private final JobStatus to;
+    @Getter
+    private final JobAction action;
+    @Getter
+    private final long timestamp;
+    @Nullable
+    private final byte[] result;
+
+    public JobEvent(long sequence,
+                    JournalRecordType type,
+                    int stepIndex,
+                    @Nullable JobStatus from,
+                    @Nullable JobStatus to,
+                    JobAction action,
+                    long timestamp,
+                    @Nullable byte[] result) {
+        this.sequence = sequence;
+        this.type = type;
+        this.stepIndex = stepIndex;
+        this.from = from;
+        this.to = to;
+        this.action = action;
+        this.timestamp = timestamp;
+        this.result = result == null ? null : result.clone();
+    }
+
+    public boolean isJobEvent() {
+        return stepIndex == JOB_INDEX;
+    }
+
+    @Nullable
+    public byte[] getResult() {
+        return result == null ? null : result.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof JobEvent)) {
+            return false;
+        }
+        JobEvent event = (JobEvent) other;
+        return sequence == event.sequence
+                && type == event.type
+                && stepIndex == event.stepIndex
+                && from == event.from
+                && to == event.to
+                && action == event.action
+                && timestamp == event.timestamp
+                && Arrays.equals(result, event.result);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "JobEvent{#" + sequence + ' ' + type + '(' + stepIndex + ") " + action
+                + (to == null ? "" : ", " + from + " -> " + to) + ", timestamp=" + timestamp + '}';
+    }
+}
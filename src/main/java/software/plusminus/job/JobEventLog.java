@@ -0,0 +1,124 @@
+package software.plusminus.job;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+class JobEventLog {
+
+    static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+
+    private static final Set<JobStatus> ROLLBACK_STATUSES = EnumSet.of(JobStatus.ROLLBACK,
+            JobStatus.SUCCESS_ROLLBACK, JobStatus.NO_ROLLBACK, JobStatus.PARTIAL_ROLLBACK, JobStatus.ERROR_ROLLBACK);
+    private static final Set<JobStatus> RUN_STATUSES = EnumSet.of(JobStatus.RUNNING,
+            JobStatus.CANCELLED, JobStatus.TIMEOUT);
+
+    private final JobEventStore store;
+    private final EventSourcedState state;
+    private final int snapshotInterval;
+    private final boolean recordResults;
+    private int sinceSnapshot;
+
+    JobEventLog(JobEventStore store, EventSourcedState state, int snapshotInterval, boolean recordResults) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.store = store;
+        this.state = state;
+        this.snapshotInterval = snapshotInterval;
+        this.recordResults = recordResults;
+    }
+
+    static EventSourcedState replay(JobEventStore store, int size) {
+        JobSnapshot snapshot = store.loadSnapshot();
+        EventSourcedState state = snapshot == null ? new EventSourcedState(size) : EventSourcedState.of(snapshot);
+        if (state.size() != size) {
+            throw new IllegalStateException("Cannot replay events: snapshot does not match job's steps");
+        }
+        store.readAfter(state.getSequence()).forEach(state::apply);
+        return state;
+    }
+
+    synchronized void status(@Nullable Step<?> step, JobStatus from, JobStatus to) {
+        byte[] result = null;
+        if (recordResults && step != null && to == JobStatus.SUCCESS) {
+            result = serialize(step.getResult());
+        }
+        append(JournalRecordType.STATUS, step == null ? JobEvent.JOB_INDEX : step.getIndex(), from, to,
+                actionOf(from, to), result);
+    }
+
+    synchronized void progress(JournalRecordType type, int stepIndex) {
+        JobAction action = type == JournalRecordType.PROGRESS || type == JournalRecordType.CHUNK
+                ? JobAction.RUN
+                : JobAction.ROLLBACK;
+        append(type, stepIndex, null, null, action, null);
+    }
+
+    private void append(JournalRecordType type,
+                        int stepIndex,
+                        @Nullable JobStatus from,
+                        @Nullable JobStatus to,
+                        JobAction action,
+                        @Nullable byte[] result) {
+        JobEvent event = new JobEvent(state.getSequence() + 1, type, stepIndex, from, to, action,
+                System.currentTimeMillis(), result);
+        store.append(event);
+        state.apply(event);
+        if (++sinceSnapshot >= snapshotInterval) {
+            store.saveSnapshot(state.snapshot());
+            sinceSnapshot = 0;
+        }
+    }
+
+    static JobAction actionOf(JobStatus from, JobStatus to) {
+        if (ROLLBACK_STATUSES.contains(to) || from == JobStatus.ROLLBACK) {
+            return JobAction.ROLLBACK;
+        }
+        if (RUN_STATUSES.contains(to) || from == JobStatus.RUNNING) {
+            return JobAction.RUN;
+        }
+        if (to == JobStatus.WAITING || from == JobStatus.WAITING) {
+            return JobAction.WAIT;
+        }
+        if (to == JobStatus.SKIPPED || from == JobStatus.SKIPPED) {
+            return JobAction.SKIP;
+        }
+        return JobAction.VALIDATE;
+    }
+
+    @Nullable
+    private static byte[] serialize(@Nullable Object value) {
+        if (!(value instanceof Serializable)) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    static Object deserialize(@Nullable byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objects.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot deserialize recorded result", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package software.plusminus.job;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+public interface JobEventStore extends AutoCloseable {
+
+    void append(JobEvent event);
+
+    List<JobEvent> readAfter(long sequence);
+
+    void saveSnapshot(JobSnapshot snapshot);
+
+    @Nullable
+    JobSnapshot loadSnapshot();
+
+    @Override
+    void close();
+}
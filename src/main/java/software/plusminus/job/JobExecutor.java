@@ -0,0 +1,264 @@
+package software.plusminus.job;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class JobExecutor {
+
+    private final Executor workers;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final TreeSet<Submission> queue = new TreeSet<>(Comparator
+            .comparingInt((Submission submission) -> submission.priority).reversed()
+            .thenComparingLong(submission -> submission.sequence));
+    private final Map<String, Integer> tagLimits = new HashMap<>();
+    private final Map<String, Integer> tagsInFlight = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private long sequence;
+    private int inFlight;
+    private boolean shutdown;
+
+    public JobExecutor(Executor workers, int maxConcurrency, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        if (maxConcurrency < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Concurrency must be positive and queue capacity not negative");
+        }
+        this.workers = workers;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public void setTagLimit(String tag, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Tag limit must be positive: " + limit);
+        }
+        lock.lock();
+        try {
+            tagLimits.put(tag, limit);
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+    }
+
+    public CompletableFuture<Void> submit(Job job, int priority, String... tags) {
+        Submission submission;
+        boolean callerRuns = false;
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor is shut down");
+            }
+            List<String> tagList = Arrays.asList(tags);
+            while (isFull(tags)) {
+                if (rejectionPolicy == RejectionPolicy.ABORT) {
+                    throw new RejectedExecutionException("The job queue is full");
+                }
+                if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && isBelowTagLimits(tagList)) {
+                    callerRuns = true;
+                    break;
+                }
+                notFull.awaitUninterruptibly();
+                if (shutdown) {
+                    throw new RejectedExecutionException("The executor is shut down");
+                }
+            }
+            submission = new Submission(job, priority, tagList, sequence++);
+            if (callerRuns) {
+                acquire(tagList);
+            } else {
+                queue.add(submission);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (callerRuns) {
+            execute(submission);
+        } else {
+            dispatch();
+        }
+        return submission.future;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight(String tag) {
+        lock.lock();
+        try {
+            return tagsInFlight.getOrDefault(tag, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Submission next;
+            lock.lock();
+            try {
+                next = poll();
+                if (next == null) {
+                    return;
+                }
+                acquire(next.tags);
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            start(next);
+        }
+    }
+
+    private Submission poll() {
+        if (inFlight >= maxConcurrency) {
+            return null;
+        }
+        Iterator<Submission> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Submission submission = iterator.next();
+            if (canStart(submission.tags)) {
+                iterator.remove();
+                return submission;
+            }
+        }
+        return null;
+    }
+
+    private void start(Submission submission) {
+        try {
+            workers.execute(() -> execute(submission));
+        } catch (RejectedExecutionException e) {
+            finish(submission, e);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void execute(Submission submission) {
+        Throwable error = null;
+        try {
+            submission.job.run();
+        } catch (Throwable e) {
+            error = e;
+        }
+        finish(submission, error);
+    }
+
+    private void finish(Submission submission, Throwable error) {
+        lock.lock();
+        try {
+            release(submission.tags);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (error == null) {
+            submission.future.complete(null);
+        } else {
+            submission.future.completeExceptionally(error);
+        }
+        dispatch();
+    }
+
+    private boolean isFull(String... tags) {
+        return queue.size() >= queueCapacity && !(queue.isEmpty() && canStart(Arrays.asList(tags)));
+    }
+
+    private boolean canStart(List<String> tags) {
+        return inFlight < maxConcurrency && isBelowTagLimits(tags);
+    }
+
+    private boolean isBelowTagLimits(List<String> tags) {
+        for (String tag : tags) {
+            Integer limit = tagLimits.get(tag);
+            if (limit != null && tagsInFlight.getOrDefault(tag, 0) >= limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acquire(List<String> tags) {
+        inFlight++;
+        tags.forEach(tag -> tagsInFlight.merge(tag, 1, Integer::sum));
+    }
+
+    private void release(List<String> tags) {
+        inFlight--;
+        tags.forEach(tag -> tagsInFlight.computeIfPresent(tag, (key, count) -> count == 1 ? null : count - 1));
+    }
+
+    public static ExecutorService platformThreads(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plusminus-job-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JDK", e);
+        }
+    }
+
+    private static final class Submission {
+
+        private final Job job;
+        private final int priority;
+        private final List<String> tags;
+        private final long sequence;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Submission(Job job, int priority, List<String> tags, long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.tags = tags;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package software.plusminus.job;
+
+import java.util.List;
+
+public interface JobJournal extends AutoCloseable {
+
+    void append(JournalRecord record);
+
+    List<JournalRecord> read();
+
+    @Override
+    void close();
+}
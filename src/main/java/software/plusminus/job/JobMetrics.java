@@ -0,0 +1,77 @@
+package software.plusminus.job;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class JobMetrics implements MetricsSink {
+
+    private final Map<String, LatencyHistogram> stepRuns = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> stepRollbacks = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> stepThrottles = new ConcurrentHashMap<>();
+    private final LatencyHistogram jobRuns = new LatencyHistogram();
+    private final LatencyHistogram jobRollbacks = new LatencyHistogram();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(JobStatus.values().length);
+
+    @Override
+    public void stepStatus(String step, JobStatus status) {
+        statusCounts.incrementAndGet(status.ordinal());
+    }
+
+    @Override
+    public void stepRun(String step, JobStatus status, long nanos) {
+        histogram(stepRuns, step).record(nanos);
+    }
+
+    @Override
+    public void stepRollback(String step, JobStatus status, long nanos) {
+        histogram(stepRollbacks, step).record(nanos);
+    }
+
+    @Override
+    public void stepThrottled(String step, long nanos) {
+        histogram(stepThrottles, step).record(nanos);
+    }
+
+    @Override
+    public void jobRun(JobStatus status, long nanos) {
+        jobRuns.record(nanos);
+    }
+
+    @Override
+    public void jobRollback(JobStatus status, long nanos) {
+        jobRollbacks.record(nanos);
+    }
+
+    public LatencyHistogram getStepRunLatency(String step) {
+        return histogram(stepRuns, step);
+    }
+
+    public LatencyHistogram getStepRollbackLatency(String step) {
+        return histogram(stepRollbacks, step);
+    }
+
+    public LatencyHistogram getStepThrottleLatency(String step) {
+        return histogram(stepThrottles, step);
+    }
+
+    public LatencyHistogram getJobRunLatency() {
+        return jobRuns;
+    }
+
+    public LatencyHistogram getJobRollbackLatency() {
+        return jobRollbacks;
+    }
+
+    public long getCount(JobStatus status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, String step) {
+        LatencyHistogram histogram = histograms.get(step);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(step, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+}
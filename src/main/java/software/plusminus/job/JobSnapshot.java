@@ -0,0 +1,66 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+
+public class JobSnapshot {
+
+    @Getter
+    private final long sequence;
+    private final byte[] savedStatuses;
+    private final int[] progress;
+    private final byte[][] results;
+    private final long[] chunks;
+
+    public JobSnapshot(long sequence, byte[] savedStatuses, int[] progress, byte[][] results) {
+        this(sequence, savedStatuses, progress, results, new long[savedStatuses.length]);
+    }
+
+    public JobSnapshot(long sequence, byte[] savedStatuses, int[] progress, byte[][] results, long[] chunks) {
+        if (savedStatuses.length != results.length || savedStatuses.length != chunks.length) {
+            throw new IllegalArgumentException("Snapshot must have one status, result and chunk slot per step");
+        }
+        this.sequence = sequence;
+        this.savedStatuses = savedStatuses.clone();
+        this.progress = progress.clone();
+        this.results = results.clone();
+        this.chunks = chunks.clone();
+    }
+
+    public int size() {
+        return savedStatuses.length;
+    }
+
+    @Nullable
+    public JobStatus getSavedStatus(int stepIndex) {
+        int ordinal = savedStatuses[stepIndex];
+        return ordinal == 0 ? null : JobStatus.values()[ordinal - 1];
+    }
+
+    public int[] getProgress() {
+        return progress.clone();
+    }
+
+    @Nullable
+    public byte[] getResult(int stepIndex) {
+        byte[] result = results[stepIndex];
+        return result == null ? null : result.clone();
+    }
+
+    public long getChunks(int stepIndex) {
+        return chunks[stepIndex];
+    }
+
+    byte[] savedStatuses() {
+        return savedStatuses;
+    }
+
+    byte[][] results() {
+        return results;
+    }
+
+    long[] chunks() {
+        return chunks;
+    }
+}
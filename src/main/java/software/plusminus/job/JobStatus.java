@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,15 +19,21 @@ public enum JobStatus {
     PARTIAL_ROLLBACK(5),
     WAITING(6, JobAction.RUN, JobAction.ROLLBACK),
     RUNNING(7),
-    ERROR(8, JobAction.SKIP, JobAction.WAIT, JobAction.RUN, JobAction.ROLLBACK, JobAction.VALIDATE),
-    ROLLBACK(9),
-    ERROR_ROLLBACK(10, JobAction.SKIP, JobAction.WAIT, JobAction.ROLLBACK, JobAction.VALIDATE),
-    INVALID(11, JobAction.SKIP, JobAction.VALIDATE);
+    ERROR(10, JobAction.SKIP, JobAction.WAIT, JobAction.RUN, JobAction.ROLLBACK, JobAction.VALIDATE),
+    ROLLBACK(11),
+    ERROR_ROLLBACK(12, JobAction.SKIP, JobAction.WAIT, JobAction.ROLLBACK, JobAction.VALIDATE),
+    INVALID(13, JobAction.SKIP, JobAction.VALIDATE),
+    CANCELLED(8, JobAction.SKIP, JobAction.WAIT, JobAction.RUN, JobAction.ROLLBACK, JobAction.VALIDATE),
+    TIMEOUT(9, JobAction.SKIP, JobAction.WAIT, JobAction.RUN, JobAction.ROLLBACK, JobAction.VALIDATE);
 
     static final Set<JobStatus> SAVED_STATUSES = new HashSet<>(Arrays.asList(
-            JobStatus.SUCCESS, JobStatus.ERROR,
+            JobStatus.SUCCESS, JobStatus.ERROR, JobStatus.CANCELLED, JobStatus.TIMEOUT,
             JobStatus.SUCCESS_ROLLBACK, JobStatus.PARTIAL_ROLLBACK, JobStatus.ERROR_ROLLBACK));
 
+    static final JobStatus[] BY_PRIORITY_DESC = Stream.of(values())
+            .sorted(Comparator.comparingInt((JobStatus status) -> status.priority).reversed())
+            .toArray(JobStatus[]::new);
+
     private final int priority;
     private final Set<JobAction> allowedActions;
 
@@ -36,28 +43,36 @@ public enum JobStatus {
                 .collect(Collectors.toSet());
     }
 
+    public boolean isAllowed(JobAction action) {
+        return allowedActions.contains(action);
+    }
+
     public void checkAction(JobAction action) {
-        boolean isAllowed = allowedActions.contains(action);
-        if (!isAllowed) {
+        if (!isAllowed(action)) {
             throw new IllegalStateException("The action " + action
                     + " is not allowed for status " + this);
         }
     }
 
     public static JobStatus max(Collection<Step<?>> steps, JobStatus defaultValue) {
-        return steps.stream()
+        List<JobStatus> statuses = steps.stream()
                 .map(Step::getStatus)
+                .collect(Collectors.toList());
+        return maxOf(statuses, defaultValue);
+    }
+
+    static JobStatus maxOf(Collection<JobStatus> statuses, JobStatus defaultValue) {
+        return statuses.stream()
                 .max(Comparator.comparingInt(status -> status.priority))
-                .map(status -> handleNoRollbackStatus(steps, status))
+                .map(status -> handleNoRollbackStatus(statuses, status))
                 .orElse(defaultValue);
     }
 
-    private static JobStatus handleNoRollbackStatus(Collection<Step<?>> steps, JobStatus currentStatus) {
+    private static JobStatus handleNoRollbackStatus(Collection<JobStatus> statuses, JobStatus currentStatus) {
         if (currentStatus != NO_ROLLBACK) {
             return currentStatus;
         }
-        boolean allNoRollback = steps.stream()
-                .map(Step::getStatus)
+        boolean allNoRollback = statuses.stream()
                 .allMatch(s -> s == NO_ROLLBACK);
         if (allNoRollback) {
             return NO_ROLLBACK;
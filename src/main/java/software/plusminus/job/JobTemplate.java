@@ -0,0 +1,81 @@
+package software.plusminus.job;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+public class JobTemplate {
+
+    private static final int[] NO_DEPENDENCIES = new int[0];
+
+    private final List<Function<Job, Step<?>>> factories = new ArrayList<>();
+    private final List<int[]> dependencies = new ArrayList<>();
+    @Nullable
+    private volatile Compiled compiled;
+
+    public <T> int addStep(Supplier<T> run, @Nullable Runnable rollback, int... dependsOn) {
+        return add(job -> new Step<>(run, rollback, null, null), dependsOn);
+    }
+
+    public <T> int addRunner(Supplier<? extends StepRunner<T>> runnerFactory, int... dependsOn) {
+        return add(job -> Step.of(runnerFactory.get()), dependsOn);
+    }
+
+    public int add(Function<Job, Step<?>> stepFactory, int... dependsOn) {
+        synchronized (this) {
+            int index = factories.size();
+            for (int dependency : dependsOn) {
+                if (dependency < 0 || dependency >= index) {
+                    throw new IllegalArgumentException("Cannot add step: dependency " + dependency
+                            + " is not an earlier step of the template");
+                }
+            }
+            factories.add(stepFactory);
+            dependencies.add(dependsOn.length == 0 ? NO_DEPENDENCIES : dependsOn.clone());
+            compiled = null;
+            return index;
+        }
+    }
+
+    public int size() {
+        return compile().edges.size();
+    }
+
+    public Job newJob() {
+        Compiled current = compile();
+        Job job = new Job();
+        Step<?>[] steps = new Step<?>[current.edges.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = current.factories.get(i).apply(job);
+        }
+        job.addSteps(steps, current.edges);
+        return job;
+    }
+
+    private Compiled compile() {
+        Compiled current = compiled;
+        if (current == null) {
+            synchronized (this) {
+                current = compiled;
+                if (current == null) {
+                    current = new Compiled(factories, dependencies);
+                    compiled = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Compiled {
+
+        private final List<Function<Job, Step<?>>> factories;
+        private final StepEdges edges;
+
+        private Compiled(List<Function<Job, Step<?>>> factories, List<int[]> dependencies) {
+            this.factories = new ArrayList<>(factories);
+            this.edges = new StepEdges(dependencies.toArray(new int[0][]));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+public class JournalRecord {
+
+    @Getter
+    private final JournalRecordType type;
+    @Getter
+    private final int stepIndex;
+    @Getter
+    @Nullable
+    private final JobStatus status;
+
+    public JournalRecord(JournalRecordType type, int stepIndex, @Nullable JobStatus status) {
+        this.type = type;
+        this.stepIndex = stepIndex;
+        this.status = status;
+    }
+
+    public static JournalRecord status(int stepIndex, JobStatus status) {
+        return new JournalRecord(JournalRecordType.STATUS, stepIndex, status);
+    }
+
+    public static JournalRecord progress(int stepIndex) {
+        return new JournalRecord(JournalRecordType.PROGRESS, stepIndex, null);
+    }
+
+    public static JournalRecord rollback(int stepIndex) {
+        return new JournalRecord(JournalRecordType.ROLLBACK, stepIndex, null);
+    }
+
+    public static JournalRecord chunk(int stepIndex) {
+        return new JournalRecord(JournalRecordType.CHUNK, stepIndex, null);
+    }
+
+    public static JournalRecord chunkRollback(int stepIndex) {
+        return new JournalRecord(JournalRecordType.CHUNK_ROLLBACK, stepIndex, null);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof JournalRecord)) {
+            return false;
+        }
+        JournalRecord record = (JournalRecord) other;
+        return type == record.type && stepIndex == record.stepIndex && status == record.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, stepIndex, status);
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + stepIndex + (status == null ? "" : ", " + status) + ")";
+    }
+}
@@ -0,0 +1,11 @@
+package software.plusminus.job;
+
+public enum JournalRecordType {
+
+    STATUS,
+    PROGRESS,
+    ROLLBACK,
+    CHUNK,
+    CHUNK_ROLLBACK;
+
+}
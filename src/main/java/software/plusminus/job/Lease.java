@@ -0,0 +1,53 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+public class Lease {
+
+    @Getter
+    private final String key;
+    @Getter
+    private final String owner;
+    @Getter
+    private final long token;
+    @Getter
+    private final long expiresAt;
+
+    public Lease(String key, String owner, long token, long expiresAt) {
+        this.key = key;
+        this.owner = owner;
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        Lease lease = (Lease) other;
+        return token == lease.token
+                && expiresAt == lease.expiresAt
+                && key.equals(lease.key)
+                && owner.equals(lease.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, owner, token, expiresAt);
+    }
+
+    @Override
+    public String toString() {
+        return "Lease{key=" + key + ", owner=" + owner + ", token=" + token + ", expiresAt=" + expiresAt + '}';
+    }
+}
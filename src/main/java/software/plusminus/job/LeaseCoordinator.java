@@ -0,0 +1,173 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+public class LeaseCoordinator implements AutoCloseable {
+
+    private final LeaseStore store;
+    @Getter
+    private final String owner;
+    @Getter
+    private final Duration ttl;
+    private final Map<String, Held> held = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor heartbeats;
+
+    public LeaseCoordinator(LeaseStore store, String owner, Duration ttl) {
+        this(store, owner, ttl, ttl.dividedBy(3));
+    }
+
+    public LeaseCoordinator(LeaseStore store, String owner, Duration ttl, Duration heartbeatInterval) {
+        if (ttl.isNegative() || ttl.isZero() || heartbeatInterval.isNegative() || heartbeatInterval.isZero()) {
+            throw new IllegalArgumentException("Lease ttl and heartbeat interval must be positive");
+        }
+        if (heartbeatInterval.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("Heartbeat interval must be shorter than the lease ttl");
+        }
+        this.store = store;
+        this.owner = owner;
+        this.ttl = ttl;
+        this.heartbeats = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "plusminus-job-lease-" + owner);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = heartbeatInterval.toNanos();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Nullable
+    public Lease claim(String key, Runnable onLost) {
+        if (heartbeats.isShutdown()) {
+            throw new IllegalStateException("Coordinator " + owner + " is closed");
+        }
+        if (held.containsKey(key)) {
+            throw new IllegalStateException("Lease " + key + " is already held by " + owner);
+        }
+        Lease lease = store.tryAcquire(key, owner, ttl);
+        if (lease != null) {
+            held.put(key, new Held(lease, onLost));
+        }
+        return lease;
+    }
+
+    public void release(Lease lease) {
+        Held removed = held.get(lease.getKey());
+        if (removed != null && removed.lease.getToken() == lease.getToken()) {
+            held.remove(lease.getKey(), removed);
+        }
+        store.release(lease);
+    }
+
+    @Nullable
+    public Lease getLease(String key) {
+        Held current = held.get(key);
+        return current == null ? null : current.lease;
+    }
+
+    public boolean isHeld(Lease lease) {
+        Held current = held.get(lease.getKey());
+        return current != null
+                && current.lease.getToken() == lease.getToken()
+                && !current.lease.isExpired(System.currentTimeMillis());
+    }
+
+    public int getHeldLeases() {
+        return held.size();
+    }
+
+    public boolean run(String key, Job job) {
+        Lease lease = claim(key, job::cancel);
+        if (lease == null) {
+            return false;
+        }
+        job.setFence(() -> isHeld(lease));
+        try {
+            job.run();
+        } finally {
+            job.setFence(null);
+            release(lease);
+        }
+        return true;
+    }
+
+    public boolean rollback(String key, Job job) {
+        Lease lease = claim(key, job::cancel);
+        if (lease == null) {
+            return false;
+        }
+        job.setFence(() -> isHeld(lease));
+        try {
+            job.rollback();
+        } finally {
+            job.setFence(null);
+            release(lease);
+        }
+        return true;
+    }
+
+    public void heartbeat() {
+        List<Held> snapshot = new ArrayList<>(held.values());
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        List<Lease> leases = new ArrayList<>(snapshot.size());
+        snapshot.forEach(h -> leases.add(h.lease));
+        List<Lease> renewed;
+        try {
+            renewed = store.renew(leases, ttl);
+        } catch (RuntimeException e) {
+            long now = System.currentTimeMillis();
+            snapshot.stream()
+                    .filter(h -> h.lease.isExpired(now))
+                    .forEach(this::lost);
+            return;
+        }
+        Set<String> renewedKeys = new HashSet<>(renewed.size() * 2);
+        for (Lease lease : renewed) {
+            renewedKeys.add(lease.getKey());
+            held.computeIfPresent(lease.getKey(),
+                    (key, current) -> current.lease.getToken() == lease.getToken()
+                            ? new Held(lease, current.onLost)
+                            : current);
+        }
+        snapshot.stream()
+                .filter(h -> !renewedKeys.contains(h.lease.getKey()))
+                .forEach(this::lost);
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        for (Held current : new ArrayList<>(held.values())) {
+            release(current.lease);
+        }
+    }
+
+    private void lost(Held lost) {
+        if (held.remove(lost.lease.getKey(), lost)) {
+            lost.onLost.run();
+        }
+    }
+
+    private static final class Held {
+
+        private final Lease lease;
+        private final Runnable onLost;
+
+        private Held(Lease lease, Runnable onLost) {
+            this.lease = lease;
+            this.onLost = onLost;
+        }
+    }
+}
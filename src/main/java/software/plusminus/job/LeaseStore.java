@@ -0,0 +1,18 @@
+package software.plusminus.job;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+
+public interface LeaseStore {
+
+    @Nullable
+    Lease tryAcquire(String key, String owner, Duration ttl);
+
+    List<Lease> renew(Collection<Lease> leases, Duration ttl);
+
+    void release(Lease lease);
+
+    boolean isCurrent(Lease lease);
+}
@@ -0,0 +1,202 @@
+package software.plusminus.job;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class MappedFileJournal implements JobJournal {
+
+    static final int MAGIC = 0x504D4A4A;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 8;
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+    private static final JournalRecordType[] TYPES = JournalRecordType.values();
+    private static final JobStatus[] STATUSES = JobStatus.values();
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final boolean awaitDurability;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dirty = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+    private MappedByteBuffer segment;
+    private long segmentOffset;
+    private long position;
+    private long durablePosition;
+    private boolean closed;
+
+    public MappedFileJournal(Path path) {
+        this(path, DEFAULT_SEGMENT_SIZE, true);
+    }
+
+    public MappedFileJournal(Path path, int segmentSize, boolean awaitDurability) {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE || segmentSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of " + RECORD_SIZE);
+        }
+        this.segmentSize = segmentSize;
+        this.awaitDurability = awaitDurability;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                mapSegment(0);
+                segment.putInt(0, MAGIC);
+                segment.putInt(4, VERSION);
+                segment.force();
+                position = HEADER_SIZE;
+            } else {
+                position = scan();
+                mapSegment(position - position % segmentSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        durablePosition = position;
+        flusher = new Thread(this::flush, "plusminus-job-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void append(JournalRecord record) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (position - segmentOffset == segmentSize) {
+                segment.force();
+                durablePosition = position;
+                mapSegment(position);
+            }
+            int offset = (int) (position - segmentOffset);
+            JobStatus status = record.getStatus();
+            segment.put(offset + 1, (byte) (status == null ? 0 : status.ordinal() + 1));
+            segment.putInt(offset + 4, record.getStepIndex());
+            segment.put(offset, (byte) (record.getType().ordinal() + 1));
+            position += RECORD_SIZE;
+            long target = position;
+            dirty.signal();
+            while (awaitDurability && durablePosition < target && !closed) {
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<JournalRecord> read() {
+        lock.lock();
+        try {
+            checkOpen();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            List<JournalRecord> records = new ArrayList<>();
+            for (int offset = HEADER_SIZE; offset < position; offset += RECORD_SIZE) {
+                records.add(decode(buffer, offset));
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dirty.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segment.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            MappedByteBuffer toForce;
+            long target;
+            lock.lock();
+            try {
+                while (durablePosition == position && !closed) {
+                    dirty.awaitUninterruptibly();
+                }
+                if (durablePosition == position) {
+                    return;
+                }
+                toForce = segment;
+                target = position;
+            } finally {
+                lock.unlock();
+            }
+            toForce.force();
+            lock.lock();
+            try {
+                durablePosition = Math.max(durablePosition, target);
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("The file is not a job journal of version " + VERSION);
+        }
+        long offset = HEADER_SIZE;
+        while (offset + RECORD_SIZE <= size && buffer.get((int) offset) != 0) {
+            offset += RECORD_SIZE;
+        }
+        return offset;
+    }
+
+    private void mapSegment(long offset) {
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, offset, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentOffset = offset;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+    }
+
+    private static JournalRecord decode(ByteBuffer buffer, int offset) {
+        JournalRecordType type = TYPES[buffer.get(offset) - 1];
+        int statusCode = buffer.get(offset + 1);
+        JobStatus status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+        return new JournalRecord(type, buffer.getInt(offset + 4), status);
+    }
+}
@@ -0,0 +1,22 @@
+package software.plusminus.job;
+
+public interface MetricsSink {
+
+    default void stepStatus(String step, JobStatus status) {
+    }
+
+    default void stepRun(String step, JobStatus status, long nanos) {
+    }
+
+    default void stepRollback(String step, JobStatus status, long nanos) {
+    }
+
+    default void stepThrottled(String step, long nanos) {
+    }
+
+    default void jobRun(JobStatus status, long nanos) {
+    }
+
+    default void jobRollback(JobStatus status, long nanos) {
+    }
+}
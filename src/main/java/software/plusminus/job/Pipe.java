@@ -0,0 +1,170 @@
+package software.plusminus.job;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+public class Pipe<E> implements Iterable<E> {
+
+    private final Object[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int count;
+    private boolean sendingClosed;
+    private boolean receivingClosed;
+    @Nullable
+    private Throwable sendingError;
+
+    public Pipe(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pipe capacity must be positive: " + capacity);
+        }
+        buffer = new Object[capacity];
+    }
+
+    public void send(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Cannot send null through a pipe");
+        }
+        lock.lock();
+        try {
+            while (count == buffer.length && !receivingClosed) {
+                await(notFull);
+            }
+            if (receivingClosed) {
+                throw new IllegalStateException("Cannot send: the receiving step has finished");
+            }
+            if (sendingClosed) {
+                throw new IllegalStateException("Cannot send: the pipe is closed");
+            }
+            buffer[(head + count) % buffer.length] = element;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public E receive() {
+        lock.lock();
+        try {
+            while (count == 0 && !sendingClosed) {
+                await(notEmpty);
+            }
+            if (count == 0) {
+                if (sendingError != null) {
+                    throw new IllegalStateException("The sending step failed", sendingError);
+                }
+                return null;
+            }
+            E element = (E) buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            count--;
+            notFull.signal();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void complete() {
+        closeSending(null);
+    }
+
+    public void fail(Throwable error) {
+        closeSending(error);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            @Nullable
+            private E next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = receive();
+                }
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                E element = next;
+                next = null;
+                return element;
+            }
+        };
+    }
+
+    void closeSending(@Nullable Throwable error) {
+        lock.lock();
+        try {
+            if (sendingClosed) {
+                return;
+            }
+            sendingClosed = true;
+            sendingError = error;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void closeReceiving() {
+        lock.lock();
+        try {
+            receivingClosed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void reset() {
+        lock.lock();
+        try {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = null;
+            }
+            head = 0;
+            count = 0;
+            sendingClosed = false;
+            receivingClosed = false;
+            sendingError = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void await(Condition condition) {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting on a pipe");
+        }
+    }
+}
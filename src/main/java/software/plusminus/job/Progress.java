@@ -0,0 +1,128 @@
+package software.plusminus.job;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+class Progress implements Iterable<Step<?>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_HOLES_TO_COMPACT = 16;
+
+    private volatile Step<?>[] items = new Step<?>[INITIAL_CAPACITY];
+    private volatile int size;
+    private volatile int count;
+    private volatile int compactions;
+
+    synchronized void add(Step<?> step) {
+        Step<?>[] current = items;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            items = current;
+        }
+        current[size] = step;
+        step.setProgressIndex(size);
+        size++;
+        count++;
+    }
+
+    boolean contains(Step<?> step) {
+        while (true) {
+            int version = compactions;
+            int index = step.getProgressIndex();
+            Step<?>[] current = items;
+            boolean contains = index >= 0 && index < size && index < current.length && current[index] == step;
+            if (contains || (version & 1) == 0 && version == compactions) {
+                return contains;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    Step<?> last() {
+        int index = size - 1;
+        if (index < 0) {
+            throw new NoSuchElementException();
+        }
+        return items[index];
+    }
+
+    synchronized void remove(Step<?> step) {
+        if (!contains(step)) {
+            return;
+        }
+        Step<?>[] current = items;
+        current[step.getProgressIndex()] = null;
+        step.setProgressIndex(-1);
+        count--;
+        int newSize = size;
+        while (newSize > 0 && current[newSize - 1] == null) {
+            newSize--;
+        }
+        size = newSize;
+        int holes = newSize - count;
+        if (holes >= MIN_HOLES_TO_COMPACT && holes > count) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        Step<?>[] current = items;
+        Step<?>[] compacted = new Step<?>[Math.max(INITIAL_CAPACITY, count * 2)];
+        int newSize = 0;
+        compactions++;
+        for (int i = 0; i < size; i++) {
+            Step<?> step = current[i];
+            if (step != null) {
+                compacted[newSize] = step;
+                step.setProgressIndex(newSize);
+                newSize++;
+            }
+        }
+        items = compacted;
+        size = newSize;
+        compactions++;
+    }
+
+    @Override
+    public Iterator<Step<?>> iterator() {
+        int snapshotSize = size;
+        Step<?>[] snapshot = items;
+        return new Iterator<Step<?>>() {
+
+            private int index;
+            @Nullable
+            private Step<?> next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Step<?> next() {
+                Step<?> current = next;
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                next = advance();
+                return current;
+            }
+
+            @Nullable
+            private Step<?> advance() {
+                while (index < snapshotSize) {
+                    Step<?> step = snapshot[index++];
+                    if (step != null) {
+                        return step;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package software.plusminus.job;
+
+public enum RejectionPolicy {
+
+    ABORT,
+    BLOCK,
+    CALLER_RUNS;
+
+}
@@ -0,0 +1,212 @@
+package software.plusminus.job;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+public class ResourceLimiter {
+
+    private final Map<String, Resource> resources = new HashMap<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Map<CompletableFuture<Void>, List<Resource>> held = new HashMap<>();
+    @Nullable
+    private ScheduledFuture<?> timer;
+    private long timerAt;
+
+    public synchronized ResourceLimiter setRate(String resource, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        resources.computeIfAbsent(resource, key -> new Resource()).setRate(permitsPerSecond, burst, System.nanoTime());
+        return this;
+    }
+
+    public synchronized ResourceLimiter setConcurrency(String resource, int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Concurrency permits must be positive");
+        }
+        resources.computeIfAbsent(resource, key -> new Resource()).concurrency = permits;
+        return this;
+    }
+
+    public synchronized int getInUse(String resource) {
+        Resource current = resources.get(resource);
+        return current == null ? 0 : current.inUse;
+    }
+
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    CompletableFuture<Void> acquire(Collection<String> names) {
+        Waiter waiter = new Waiter(names);
+        synchronized (this) {
+            waiters.add(waiter);
+        }
+        drain();
+        return waiter.future;
+    }
+
+    void release(CompletableFuture<Void> permits) {
+        synchronized (this) {
+            giveBack(permits);
+        }
+        drain();
+    }
+
+    private void drain() {
+        boolean returned = true;
+        while (returned) {
+            returned = false;
+            for (Waiter waiter : grant()) {
+                if (!waiter.future.complete(null)) {
+                    synchronized (this) {
+                        giveBack(waiter.future);
+                    }
+                    returned = true;
+                }
+            }
+        }
+    }
+
+    private synchronized List<Waiter> grant() {
+        List<Waiter> granted = new ArrayList<>();
+        Set<Resource> blocked = new HashSet<>();
+        long now = System.nanoTime();
+        long nextDelay = Long.MAX_VALUE;
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter.future.isDone()) {
+                iterator.remove();
+                continue;
+            }
+            List<Resource> limited = limitedResources(waiter.names);
+            long delay = blocked.isEmpty() || Collections.disjoint(blocked, limited) ? tryAcquire(limited, now) : -1;
+            if (delay == 0) {
+                iterator.remove();
+                held.put(waiter.future, counted(limited));
+                granted.add(waiter);
+            } else {
+                blocked.addAll(limited);
+                if (delay > 0) {
+                    nextDelay = Math.min(nextDelay, delay);
+                }
+            }
+        }
+        if (nextDelay != Long.MAX_VALUE) {
+            schedule(now, nextDelay);
+        }
+        return granted;
+    }
+
+    private List<Resource> limitedResources(Collection<String> names) {
+        List<Resource> limited = new ArrayList<>(names.size());
+        for (String name : names) {
+            Resource resource = resources.get(name);
+            if (resource != null) {
+                limited.add(resource);
+            }
+        }
+        return limited;
+    }
+
+    private static long tryAcquire(List<Resource> limited, long now) {
+        long delay = 0;
+        for (Resource resource : limited) {
+            if (resource.concurrency > 0 && resource.inUse >= resource.concurrency) {
+                return -1;
+            }
+            delay = Math.max(delay, resource.nanosUntilToken(now));
+        }
+        if (delay > 0) {
+            return delay;
+        }
+        limited.forEach(Resource::take);
+        return 0;
+    }
+
+    private static List<Resource> counted(List<Resource> limited) {
+        List<Resource> counted = new ArrayList<>(limited.size());
+        for (Resource resource : limited) {
+            if (resource.concurrency > 0) {
+                counted.add(resource);
+            }
+        }
+        return counted;
+    }
+
+    private void giveBack(CompletableFuture<Void> permits) {
+        List<Resource> counted = held.remove(permits);
+        if (counted != null) {
+            counted.forEach(resource -> resource.inUse--);
+        }
+    }
+
+    private void schedule(long now, long delay) {
+        long at = now + delay;
+        if (timer != null && timerAt - now > 0 && timerAt - at <= 0) {
+            return;
+        }
+        Timers.cancel(timer);
+        timerAt = at;
+        timer = Timers.schedule(delay, this::drain);
+    }
+
+    private static final class Resource {
+
+        private int concurrency;
+        private int inUse;
+        private double permitsPerNano;
+        private int burst;
+        private double tokens;
+        private long refilledAt;
+
+        private void setRate(double permitsPerSecond, int newBurst, long now) {
+            permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            burst = newBurst;
+            tokens = newBurst;
+            refilledAt = now;
+        }
+
+        private long nanosUntilToken(long now) {
+            if (permitsPerNano == 0) {
+                return 0;
+            }
+            tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        private void take() {
+            if (concurrency > 0) {
+                inUse++;
+            }
+            if (permitsPerNano > 0) {
+                tokens--;
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Collection<String> names;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(Collection<String> names) {
+            this.names = names;
+        }
+    }
+}
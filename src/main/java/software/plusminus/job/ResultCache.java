@@ -0,0 +1,166 @@
+package software.plusminus.job;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+public class ResultCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    public ResultCache(int maxSize, @Nullable Duration ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("Cache ttl must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean contains(Object key) {
+        Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    public synchronized int cleanUp() {
+        long now = System.nanoTime();
+        int removed = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        evictions.addAndGet(removed);
+        return removed;
+    }
+
+    public synchronized void invalidate(Object key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized Claim claim(Object key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(System.nanoTime())) {
+            hits.incrementAndGet();
+            return new Claim(key, entry.future, true);
+        }
+        misses.incrementAndGet();
+        CompletableFuture<Object> computation = new CompletableFuture<>();
+        entries.put(key, new Entry(computation));
+        evict();
+        return new Claim(key, computation, false);
+    }
+
+    private synchronized void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        int excess = entries.size() - maxSize;
+        while (excess > 0 && eldest.hasNext()) {
+            if (eldest.next().future.isDone()) {
+                eldest.remove();
+                evictions.incrementAndGet();
+                excess--;
+            }
+        }
+    }
+
+    private synchronized void remove(Object key, CompletableFuture<Object> computation) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.future == computation) {
+            entries.remove(key);
+        }
+    }
+
+    final class Claim {
+
+        private final Object key;
+        private final CompletableFuture<Object> future;
+        private final boolean hit;
+
+        private Claim(Object key, CompletableFuture<Object> future, boolean hit) {
+            this.key = key;
+            this.future = future;
+            this.hit = hit;
+        }
+
+        boolean isHit() {
+            return hit;
+        }
+
+        CompletableFuture<Object> getFuture() {
+            return future;
+        }
+
+        void complete(@Nullable Object value) {
+            if (!hit) {
+                future.complete(value);
+                evict();
+            }
+        }
+
+        void fail(Throwable error) {
+            if (!hit) {
+                remove(key, future);
+                future.completeExceptionally(error);
+            }
+        }
+
+        void invalidate() {
+            if (!hit) {
+                remove(key, future);
+            }
+        }
+    }
+
+    private final class Entry {
+
+        private final CompletableFuture<Object> future;
+        private volatile long completedAt;
+
+        private Entry(CompletableFuture<Object> future) {
+            this.future = future;
+            future.whenComplete((value, error) -> completedAt = System.nanoTime());
+        }
+
+        private boolean isExpired(long now) {
+            long completed = completedAt;
+            return ttlNanos > 0 && completed != 0 && now - completed > ttlNanos;
+        }
+    }
+}
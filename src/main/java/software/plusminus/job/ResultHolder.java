@@ -0,0 +1,245 @@
+package software.plusminus.job;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+abstract class ResultHolder<T> {
+
+    private static final ResultHolder<?> EMPTY = new Strong<>(null);
+
+    @Nullable
+    abstract T get();
+
+    long retainedBytes() {
+        return 0;
+    }
+
+    long spilledBytes() {
+        return 0;
+    }
+
+    void release() {
+        // nothing is held outside of the heap
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ResultHolder<T> empty() {
+        return (ResultHolder<T>) EMPTY;
+    }
+
+    static <T> ResultHolder<T> of(@Nullable T value, ResultRetention retention) {
+        if (value == null) {
+            return empty();
+        }
+        switch (retention) {
+            case SOFT:
+                return new Referenced<>(new SoftReference<>(value), estimate(value));
+            case WEAK:
+                return new Referenced<>(new WeakReference<>(value), estimate(value));
+            case SPILL:
+                return Spilled.spill(value);
+            default:
+                return new Strong<>(value);
+        }
+    }
+
+    static long estimate(@Nullable Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        } else if (value instanceof char[]) {
+            return 16 + 2L * ((char[]) value).length;
+        } else if (value instanceof int[]) {
+            return 16 + 4L * ((int[]) value).length;
+        } else if (value instanceof long[]) {
+            return 16 + 8L * ((long[]) value).length;
+        } else if (value instanceof double[]) {
+            return 16 + 8L * ((double[]) value).length;
+        } else if (value instanceof Object[]) {
+            return 16 + 4L * ((Object[]) value).length;
+        } else if (value instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) value).length();
+        } else if (value instanceof Collection) {
+            return 32 + 20L * ((Collection<?>) value).size();
+        } else if (value instanceof Map) {
+            return 48 + 36L * ((Map<?, ?>) value).size();
+        }
+        return 16;
+    }
+
+    private static final class Strong<T> extends ResultHolder<T> {
+
+        @Nullable
+        private final T value;
+        private final long size;
+
+        private Strong(@Nullable T value) {
+            this.value = value;
+            this.size = estimate(value);
+        }
+
+        @Nullable
+        @Override
+        T get() {
+            return value;
+        }
+
+        @Override
+        long retainedBytes() {
+            return size;
+        }
+    }
+
+    private static final class Referenced<T> extends ResultHolder<T> {
+
+        private final Reference<T> reference;
+        private final long size;
+
+        private Referenced(Reference<T> reference, long size) {
+            this.reference = reference;
+            this.size = size;
+        }
+
+        @Nullable
+        @Override
+        T get() {
+            return reference.get();
+        }
+
+        @Override
+        long retainedBytes() {
+            return reference.get() == null ? 0 : size;
+        }
+    }
+
+    private static final class Spilled<T> extends ResultHolder<T> {
+
+        private final Path file;
+        private final SpillFile spillFile;
+        private final long size;
+        private volatile Reference<T> cache;
+
+        private Spilled(Path file, long size) {
+            this.file = file;
+            this.spillFile = new SpillFile(this, file);
+            this.size = size;
+            this.cache = new SoftReference<>(null);
+        }
+
+        @Nullable
+        @Override
+        T get() {
+            T value = cache.get();
+            if (value == null) {
+                value = load();
+                cache = new SoftReference<>(value);
+            }
+            return value;
+        }
+
+        @Override
+        long spilledBytes() {
+            return size;
+        }
+
+        @Override
+        void release() {
+            cache.clear();
+            try {
+                spillFile.delete();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T load() {
+            try (InputStream input = Files.newInputStream(file);
+                 ObjectInputStream objects = new ObjectInputStream(input)) {
+                return (T) objects.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot load spilled result from " + file, e);
+            }
+        }
+
+        private static <T> Spilled<T> spill(T value) {
+            SpillFile.deleteCollected();
+            try {
+                Path file = Files.createTempFile("plusminus-job-", ".result");
+                try (OutputStream output = Files.newOutputStream(file);
+                     ObjectOutputStream objects = new ObjectOutputStream(output)) {
+                    objects.writeObject(value);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(file);
+                    throw e;
+                }
+                return new Spilled<>(file, Files.size(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot spill result of type " + value.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static final class SpillFile extends PhantomReference<Spilled<?>> {
+
+        private static final ReferenceQueue<Spilled<?>> COLLECTED = new ReferenceQueue<>();
+        private static final Set<SpillFile> LIVE = ConcurrentHashMap.newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(SpillFile::deleteLive, "plusminus-job-spill-cleaner"));
+        }
+
+        private final Path path;
+
+        private SpillFile(Spilled<?> holder, Path path) {
+            super(holder, COLLECTED);
+            this.path = path;
+            LIVE.add(this);
+        }
+
+        private void delete() throws IOException {
+            LIVE.remove(this);
+            clear();
+            Files.deleteIfExists(path);
+        }
+
+        private void deleteQuietly() {
+            try {
+                delete();
+            } catch (IOException e) {
+                path.toFile().deleteOnExit();
+            }
+        }
+
+        private static void deleteCollected() {
+            Reference<?> collected = COLLECTED.poll();
+            while (collected != null) {
+                ((SpillFile) collected).deleteQuietly();
+                collected = COLLECTED.poll();
+            }
+        }
+
+        private static void deleteLive() {
+            LIVE.forEach(SpillFile::deleteQuietly);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package software.plusminus.job;
+
+public enum ResultRetention {
+
+    KEEP,
+    DISCARD,
+    SOFT,
+    WEAK,
+    SPILL;
+
+}
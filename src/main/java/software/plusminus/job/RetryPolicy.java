@@ -0,0 +1,83 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+public class RetryPolicy {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, 1, Duration.ZERO, 0, error -> false);
+
+    @Getter
+    private final int maxAttempts;
+    @Getter
+    private final Duration initialDelay;
+    @Getter
+    private final double multiplier;
+    @Getter
+    private final Duration maxDelay;
+    @Getter
+    private final double jitter;
+    private final Predicate<Throwable> retryOn;
+
+    public RetryPolicy(int maxAttempts,
+                       Duration initialDelay,
+                       double multiplier,
+                       Duration maxDelay,
+                       double jitter,
+                       Predicate<Throwable> retryOn) {
+        if (maxAttempts < 1 || multiplier < 1 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid retry policy: maxAttempts must be positive, "
+                    + "multiplier at least 1 and jitter between 0 and 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+        this.retryOn = retryOn;
+    }
+
+    public boolean shouldRetry(int attempt, Throwable error) {
+        return attempt < maxAttempts && retryOn.test(error);
+    }
+
+    public long delayNanos(int attempt) {
+        double delay = initialDelay.toNanos() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(delay, maxDelay.toNanos());
+        return (long) (capped * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public RetryPolicy withJitter(double newJitter) {
+        return new RetryPolicy(maxAttempts, initialDelay, multiplier, maxDelay, newJitter, retryOn);
+    }
+
+    public RetryPolicy withMaxDelay(Duration newMaxDelay) {
+        return new RetryPolicy(maxAttempts, initialDelay, multiplier, newMaxDelay, jitter, retryOn);
+    }
+
+    public RetryPolicy retryOn(Predicate<Throwable> predicate) {
+        return new RetryPolicy(maxAttempts, initialDelay, multiplier, maxDelay, jitter, predicate);
+    }
+
+    public RetryPolicy retryOn(Class<?>... types) {
+        Class<?>[] retryableTypes = types.clone();
+        return retryOn(error -> isInstance(error, retryableTypes));
+    }
+
+    private static boolean isInstance(Throwable error, Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type.isInstance(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static RetryPolicy of(int maxAttempts, Duration initialDelay) {
+        return new RetryPolicy(maxAttempts, initialDelay, 2, Duration.ofMinutes(1), 0.5,
+                error -> error instanceof Exception);
+    }
+}
@@ -0,0 +1,43 @@
+package software.plusminus.job;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+
+public class StatusEvent {
+
+    @Getter
+    private final Job job;
+    @Getter
+    @Nullable
+    private final Step<?> step;
+    @Getter
+    @Nullable
+    private final JobStatus oldStatus;
+    @Getter
+    private final JobStatus newStatus;
+    @Getter
+    private final long timestamp;
+
+    public StatusEvent(Job job,
+                       @Nullable Step<?> step,
+                       @Nullable JobStatus oldStatus,
+                       JobStatus newStatus,
+                       long timestamp) {
+        this.job = job;
+        this.step = step;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.timestamp = timestamp;
+    }
+
+    public Object getSource() {
+        return step == null ? job : step;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusEvent{source=" + getSource() + ", " + oldStatus + " -> " + newStatus
+                + ", timestamp=" + timestamp + '}';
+    }
+}
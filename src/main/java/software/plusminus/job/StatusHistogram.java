@@ -0,0 +1,63 @@
+package software.plusminus.job;
+
+import javax.annotation.Nullable;
+
+class StatusHistogram {
+
+    private final int[] counts = new int[JobStatus.values().length];
+    private int total;
+
+    void add(@Nullable JobStatus status) {
+        if (status == null) {
+            return;
+        }
+        counts[status.ordinal()]++;
+        total++;
+    }
+
+    void add(JobStatus status, int count) {
+        counts[status.ordinal()] += count;
+        total += count;
+    }
+
+    void remove(@Nullable JobStatus status) {
+        if (status == null) {
+            return;
+        }
+        counts[status.ordinal()]--;
+        total--;
+    }
+
+    void move(@Nullable JobStatus from, @Nullable JobStatus to) {
+        remove(from);
+        add(to);
+    }
+
+    int count(JobStatus status) {
+        return counts[status.ordinal()];
+    }
+
+    int total() {
+        return total;
+    }
+
+    JobStatus max(JobStatus defaultValue) {
+        for (JobStatus status : JobStatus.BY_PRIORITY_DESC) {
+            if (counts[status.ordinal()] > 0) {
+                return handleNoRollbackStatus(status);
+            }
+        }
+        return defaultValue;
+    }
+
+    private JobStatus handleNoRollbackStatus(JobStatus currentStatus) {
+        if (currentStatus != JobStatus.NO_ROLLBACK) {
+            return currentStatus;
+        }
+        if (counts[JobStatus.NO_ROLLBACK.ordinal()] == total) {
+            return JobStatus.NO_ROLLBACK;
+        } else {
+            return JobStatus.PARTIAL_ROLLBACK;
+        }
+    }
+}
@@ -1,72 +1,224 @@
 package software.plusminus.job;
 
 import lombok.Getter;
+import lombok.Setter;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
 public class Step<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Step, JobStatus> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(Step.class, JobStatus.class, "status");
+
     private Supplier<T> run;
+    private Supplier<? extends CompletionStage<T>> asyncRun;
     private Supplier<Runnable> rollback;
     @Nullable
     private Supplier<Boolean> validator;
     @Nullable
     private Consumer<JobStatus> listener;
+    @Getter
+    @Setter
+    private volatile ValidationMode validationMode = ValidationMode.ALWAYS;
+    private volatile boolean dirty = true;
+    private volatile boolean valid;
+    @Nullable
+    @Getter
+    @Setter
+    private volatile Duration timeout;
+    @Getter
+    @Setter
+    private volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+    @Getter
+    @Setter
+    private volatile RetryPolicy rollbackRetryPolicy = RetryPolicy.NONE;
+    @Getter
+    private volatile int attempts;
+    @Getter
+    @Nullable
+    private volatile Throwable lastError;
+    @Nullable
+    private Consumer<JobStatus> stopHandler;
+    @Nullable
+    private Job subJob;
+    @Nullable
+    private Thread runner;
+    @Nullable
+    private CompletableFuture<T> pending;
+    @Nullable
+    private JobStatus stopStatus;
 
+    @Nullable
+    @Setter
+    private volatile String name;
+    @Nullable
+    @Setter
+    private volatile Supplier<?> fingerprint;
+    @Nullable
+    private volatile Object inputFingerprint;
+    @Nullable
+    private volatile Object runFingerprint;
+    @Nullable
     @Getter
+    @Setter
+    private volatile Object idempotencyKey;
     @Nullable
-    private volatile T result;
+    private volatile ResultCache.Claim cacheClaim;
+    @Getter
+    private volatile Set<String> resources = Collections.emptySet();
+    @Nullable
+    private volatile long[] transitionTimes;
+
+    @Nullable
+    @Getter
+    @Setter
+    private volatile ResultRetention resultRetention;
+    private volatile ResultHolder<T> result = ResultHolder.empty();
     private volatile JobStatus savedStatus;
     @Getter
     private volatile JobStatus status;
     @Nullable
-    private Job job;
+    private volatile Job job;
+    private volatile int progressIndex = -1;
+    private volatile int index = -1;
+    private final AtomicLong restoredChunks = new AtomicLong();
 
     public Step(Supplier<T> run,
                 @Nullable Runnable rollback,
                 @Nullable Supplier<Boolean> validator,
                 @Nullable Consumer<JobStatus> listener) {
-        this(run, () -> rollback, validator, listener);
+        this(run, () -> CompletableFuture.completedFuture(run.get()), () -> rollback, validator, listener);
     }
 
     private Step(Supplier<T> run,
+                 Supplier<? extends CompletionStage<T>> asyncRun,
                  Supplier<Runnable> rollback,
                  @Nullable Supplier<Boolean> validator,
                  @Nullable Consumer<JobStatus> listener) {
         this.run = run;
+        this.asyncRun = asyncRun;
         this.rollback = rollback;
         this.validator = validator;
         this.listener = listener;
         savedStatus = JobStatus.READY;
-        validate(null);
+        changeStatus(validatedStatus());
     }
 
     public T run() {
-        checkAction(JobAction.RUN);
+        JobStatus previous = compareAndSetStatus(JobAction.RUN, JobStatus.RUNNING);
+        inputFingerprint = getFingerprint();
+        startRun(Thread.currentThread(), null);
+        ScheduledFuture<?> deadline = null;
         try {
-            changeStatus(JobStatus.RUNNING);
-            result = run.get();
+            statusChanged(previous, JobStatus.RUNNING);
+            deadline = Timers.schedule(timeout, () -> stop(JobStatus.TIMEOUT));
+            T value = stopIfJobStopped() ? null : runCached();
+            JobStatus stopped = releaseRunner();
+            if (stopped != null) {
+                throw Futures.stopped(stopped, null);
+            }
+            storeResult(value);
+            runFingerprint = inputFingerprint;
+            completeCached(value);
             changeStatus(JobStatus.SUCCESS);
             if (job != null) {
                 job.addProgress(this);
             }
-            return result;
+            return value;
         } catch (Exception e) {
-            changeStatus(JobStatus.ERROR);
-            throw e;
+            failCached(e);
+            JobStatus stopped = releaseRunner();
+            if (stopped == null) {
+                changeStatus(JobStatus.ERROR);
+                throw e;
+            }
+            changeStatus(stopped);
+            throw e instanceof CancellationException ? (CancellationException) e : Futures.stopped(stopped, e);
+        } finally {
+            Timers.cancel(deadline);
+        }
+    }
+
+    public CompletableFuture<T> runAsync() {
+        return runAsync(ForkJoinPool.commonPool());
+    }
+
+    public CompletableFuture<T> runAsync(Executor retryExecutor) {
+        JobStatus previous = compareAndSetStatus(JobAction.RUN, JobStatus.RUNNING);
+        inputFingerprint = getFingerprint();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        startRun(Thread.currentThread(), future);
+        try {
+            statusChanged(previous, JobStatus.RUNNING);
+            if (stopIfJobStopped()) {
+                releaseRunner();
+                return future;
+            }
+            ScheduledFuture<?> deadline = Timers.schedule(timeout, () -> stop(JobStatus.TIMEOUT));
+            future.whenComplete((value, error) -> Timers.cancel(deadline));
+            ResultCache.Claim claim = claimCached();
+            if (claim != null && claim.isHit()) {
+                claim.getFuture().whenComplete((value, error) -> completeCachedRunAsync(future, value, error,
+                        retryExecutor));
+            } else {
+                if (claim != null) {
+                    future.whenComplete((value, error) -> {
+                        if (error == null) {
+                            claim.complete(value);
+                        } else {
+                            claim.fail(error);
+                        }
+                    });
+                }
+                attemptAsync(future, 1, retryExecutor);
+            }
+            releaseRunner();
+        } catch (Exception e) {
+            releaseRunner();
+            completeRun(future, null, e);
         }
+        return future;
+    }
+
+    public void cancel() {
+        stop(JobStatus.CANCELLED);
     }
 
     public void rollback() {
-        checkAction(JobAction.ROLLBACK);
+        JobStatus previous = compareAndSetStatus(JobAction.ROLLBACK, JobStatus.ROLLBACK);
+        attempts = 0;
+        lastError = null;
         try {
-            changeStatus(JobStatus.ROLLBACK);
-            Runnable rollbackAction = rollback.get();
+            statusChanged(previous, JobStatus.ROLLBACK);
+            ResultCache.Claim claim = cacheClaim;
+            if (claim != null) {
+                claim.invalidate();
+            }
+            Runnable rollbackAction = claim != null && claim.isHit() ? null : rollback.get();
             if (rollbackAction != null) {
-                rollbackAction.run();
-                changeStatus(JobStatus.SUCCESS_ROLLBACK);
+                rollbackWithRetries(rollbackAction);
+                changeStatus(rolledBackStatus());
             } else {
                 changeStatus(JobStatus.NO_ROLLBACK);
             }
@@ -76,72 +228,596 @@ public class Step<T> {
         }
     }
 
-    public void validate() {
-        validate(JobAction.VALIDATE);
+    public CompletableFuture<Void> rollbackAsync(Executor retryExecutor) {
+        JobStatus previous = compareAndSetStatus(JobAction.ROLLBACK, JobStatus.ROLLBACK);
+        attempts = 0;
+        lastError = null;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            statusChanged(previous, JobStatus.ROLLBACK);
+            ResultCache.Claim claim = cacheClaim;
+            if (claim != null) {
+                claim.invalidate();
+            }
+            Runnable rollbackAction = claim != null && claim.isHit() ? null : rollback.get();
+            if (rollbackAction != null) {
+                attemptRollbackAsync(future, rollbackAction, 1, retryExecutor);
+            } else {
+                changeStatus(JobStatus.NO_ROLLBACK);
+                future.complete(null);
+            }
+        } catch (Exception e) {
+            completeRollback(future, e);
+        }
+        return future;
+    }
+
+    public void setResources(String... names) {
+        setResources(Arrays.asList(names));
+    }
+
+    public void setResources(Collection<String> names) {
+        resources = names.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+
+    public boolean isCacheHit() {
+        ResultCache.Claim claim = cacheClaim;
+        return claim != null && claim.isHit();
+    }
+
+    @Nullable
+    private ResultCache.Claim claimCached() {
+        Object key = idempotencyKey;
+        Job currentJob = job;
+        ResultCache cache = currentJob == null ? null : currentJob.getResultCache();
+        ResultCache.Claim claim = key == null || cache == null ? null : cache.claim(key);
+        cacheClaim = claim;
+        return claim;
+    }
+
+    private T runCached() {
+        ResultCache.Claim claim = claimCached();
+        if (claim == null || !claim.isHit()) {
+            return runWithRetries();
+        }
+        try {
+            return cast(claim.getFuture().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cached result", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Cached computation failed", cause);
+        }
+    }
+
+    private void completeCachedRunAsync(CompletableFuture<T> future, @Nullable Object value,
+                                        @Nullable Throwable error, Executor executor) {
+        try {
+            executor.execute(() -> completeCachedRun(future, value, error));
+        } catch (RejectedExecutionException e) {
+            completeCachedRun(future, value, error);
+        }
+    }
+
+    private void completeCachedRun(CompletableFuture<T> future, @Nullable Object value, @Nullable Throwable error) {
+        completeRun(future, error == null ? cast(value) : null, Futures.unwrap(error));
+    }
+
+    private void completeCached(@Nullable T value) {
+        ResultCache.Claim claim = cacheClaim;
+        if (claim != null) {
+            claim.complete(value);
+        }
+    }
+
+    private void failCached(Throwable error) {
+        ResultCache.Claim claim = cacheClaim;
+        if (claim != null) {
+            claim.fail(error);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private T cast(@Nullable Object value) {
+        return (T) value;
+    }
+
+    private T runWithRetries() {
+        for (int attempt = 1; ; attempt++) {
+            attempts = attempt;
+            try {
+                return run.get();
+            } catch (RuntimeException e) {
+                lastError = e;
+                awaitRetry(retryPolicy, attempt, e);
+            }
+        }
+    }
+
+    private void rollbackWithRetries(Runnable rollbackAction) {
+        for (int attempt = 1; ; attempt++) {
+            attempts = attempt;
+            try {
+                rollbackAction.run();
+                return;
+            } catch (RuntimeException e) {
+                lastError = e;
+                awaitRetry(rollbackRetryPolicy, attempt, e);
+            }
+        }
+    }
+
+    private void awaitRetry(RetryPolicy policy, int attempt, RuntimeException error) {
+        if (!policy.shouldRetry(attempt, error) || isStopRequested()) {
+            throw error;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(policy.delayNanos(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw error;
+        }
+    }
+
+    private void attemptRollbackAsync(CompletableFuture<Void> future, Runnable rollbackAction, int attempt,
+                                      Executor retryExecutor) {
+        attempts = attempt;
+        try {
+            rollbackAction.run();
+        } catch (RuntimeException e) {
+            lastError = e;
+            if (rollbackRetryPolicy.shouldRetry(attempt, e) && !isStopRequested()) {
+                long delay = rollbackRetryPolicy.delayNanos(attempt);
+                Timers.schedule(delay, () -> retryRollbackAsync(future, rollbackAction, attempt + 1, retryExecutor));
+            } else {
+                completeRollback(future, e);
+            }
+            return;
+        }
+        completeRollback(future, null);
+    }
+
+    private void retryRollbackAsync(CompletableFuture<Void> future, Runnable rollbackAction, int attempt,
+                                    Executor retryExecutor) {
+        try {
+            retryExecutor.execute(() -> attemptRollbackAsync(future, rollbackAction, attempt, retryExecutor));
+        } catch (RejectedExecutionException e) {
+            completeRollback(future, e);
+        }
+    }
+
+    private void completeRollback(CompletableFuture<Void> future, @Nullable Exception error) {
+        if (error == null) {
+            changeStatus(rolledBackStatus());
+            future.complete(null);
+        } else {
+            changeStatus(JobStatus.ERROR_ROLLBACK);
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void attemptAsync(CompletableFuture<T> future, int attempt, Executor retryExecutor) {
+        if (future.isDone()) {
+            return;
+        }
+        attempts = attempt;
+        CompletionStage<T> stage;
+        try {
+            stage = asyncRun.get();
+        } catch (Exception e) {
+            stage = Futures.failed(e);
+        }
+        stage.whenComplete((value, error) -> {
+            Throwable cause = Futures.unwrap(error);
+            if (cause != null) {
+                lastError = cause;
+            }
+            if (cause != null && retryPolicy.shouldRetry(attempt, cause) && !future.isDone()) {
+                long delay = retryPolicy.delayNanos(attempt);
+                Timers.schedule(delay, () -> retryAsync(future, attempt + 1, retryExecutor));
+            } else {
+                completeRun(future, value, cause);
+            }
+        });
+    }
+
+    private void retryAsync(CompletableFuture<T> future, int attempt, Executor retryExecutor) {
+        try {
+            retryExecutor.execute(() -> attemptAsync(future, attempt, retryExecutor));
+        } catch (RejectedExecutionException e) {
+            completeRun(future, null, e);
+        }
+    }
+
+    private void completeRun(CompletableFuture<T> future, @Nullable T value, @Nullable Throwable error) {
+        if (!claim(future)) {
+            return;
+        }
+        if (error != null) {
+            JobStatus stopped = getStopStatus();
+            changeStatus(stopped == null ? JobStatus.ERROR : stopped);
+            future.completeExceptionally(error);
+            return;
+        }
+        try {
+            storeResult(value);
+            runFingerprint = inputFingerprint;
+            changeStatus(JobStatus.SUCCESS);
+            if (job != null) {
+                job.addProgress(this);
+            }
+            future.complete(value);
+        } catch (Exception e) {
+            changeStatus(JobStatus.RUNNING, JobStatus.ERROR);
+            future.completeExceptionally(e);
+        }
     }
 
-    private void validate(@Nullable JobAction jobAction) {
+    @Nullable
+    public Object getFingerprint() {
+        Supplier<?> current = fingerprint;
+        return current == null ? null : current.get();
+    }
+
+    public boolean isStale() {
+        return status == JobStatus.SUCCESS && !Objects.equals(getFingerprint(), runFingerprint);
+    }
+
+    public void validate() {
         if (validator == null) {
             changeStatus(savedStatus);
             return;
         }
-        boolean isValid = validator.get();
-        if (jobAction != null) {
-            checkAction(jobAction);
+        transition(JobAction.VALIDATE, validatedStatus());
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    private JobStatus validatedStatus() {
+        if (validator == null) {
+            return savedStatus;
+        }
+        boolean isValid;
+        if (validationMode == ValidationMode.WHEN_DIRTY && !dirty) {
+            isValid = valid;
+        } else {
+            dirty = false;
+            isValid = validator.get();
+            valid = isValid;
         }
-        changeStatus(isValid ? savedStatus : JobStatus.INVALID);
+        return isValid ? savedStatus : JobStatus.INVALID;
     }
 
     public void skip() {
-        checkAction(JobAction.SKIP);
-        changeStatus(JobStatus.SKIPPED);
+        transition(JobAction.SKIP, JobStatus.SKIPPED);
+    }
+
+    private JobStatus rolledBackStatus() {
+        JobStatus subJobStatus = subJob == null ? null : subJob.getStatus();
+        return subJobStatus == JobStatus.NO_ROLLBACK || subJobStatus == JobStatus.PARTIAL_ROLLBACK
+                ? subJobStatus
+                : JobStatus.SUCCESS_ROLLBACK;
+    }
+
+    private void subJobChanged(StatusEvent event) {
+        if (event.getStep() != null) {
+            return;
+        }
+        JobStatus current = status;
+        if (event.getNewStatus() == JobStatus.SKIPPED) {
+            if (current.isAllowed(JobAction.SKIP)) {
+                changeStatus(current, JobStatus.SKIPPED);
+            }
+        } else if (event.getOldStatus() == JobStatus.SKIPPED) {
+            unskip();
+        }
     }
 
     public void unskip() {
         if (status == JobStatus.SKIPPED) {
-            validate(null);
+            changeStatus(JobStatus.SKIPPED, validatedStatus());
+        }
+    }
+
+    @Nullable
+    public T getResult() {
+        return result.get();
+    }
+
+    public long getRetainedBytes() {
+        return result.retainedBytes();
+    }
+
+    public long getSpilledBytes() {
+        return result.spilledBytes();
+    }
+
+    public String getName() {
+        String stepName = name;
+        if (stepName == null) {
+            stepName = "step-" + index;
+            name = stepName;
+        }
+        return stepName;
+    }
+
+    public long getTransitionTime(JobStatus transitionStatus) {
+        long[] times = transitionTimes;
+        return times == null ? 0 : times[transitionStatus.ordinal()];
+    }
+
+    void stop(JobStatus reason) {
+        synchronized (this) {
+            if (stopStatus != null || (runner == null && pending == null)) {
+                return;
+            }
+            stopStatus = reason;
+        }
+        if (stopHandler != null) {
+            stopHandler.accept(reason);
+        }
+        CompletableFuture<T> stoppedFuture;
+        synchronized (this) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+            stoppedFuture = pending;
+            pending = null;
+        }
+        if (stoppedFuture != null) {
+            changeStatus(reason);
+            stoppedFuture.completeExceptionally(Futures.stopped(reason, null));
+        }
+    }
+
+    void abort(JobStatus reason) {
+        changeStatus(JobStatus.WAITING, reason);
+    }
+
+    private boolean stopIfJobStopped() {
+        Job currentJob = job;
+        JobStatus jobStopStatus = currentJob == null ? null : currentJob.getStopStatus();
+        if (jobStopStatus == null) {
+            return false;
+        }
+        stop(jobStopStatus);
+        return true;
+    }
+
+    private synchronized void startRun(Thread thread, @Nullable CompletableFuture<T> future) {
+        runner = thread;
+        pending = future;
+        cacheClaim = null;
+        stopStatus = null;
+        attempts = 0;
+        lastError = null;
+    }
+
+    @Nullable
+    private synchronized JobStatus getStopStatus() {
+        return stopStatus;
+    }
+
+    private synchronized boolean isStopRequested() {
+        return runner != null && stopStatus != null;
+    }
+
+    @Nullable
+    private synchronized JobStatus releaseRunner() {
+        if (runner != null && stopStatus != null) {
+            Thread.interrupted();
+        }
+        runner = null;
+        return stopStatus;
+    }
+
+    private synchronized boolean claim(CompletableFuture<T> future) {
+        if (pending != future) {
+            return false;
+        }
+        pending = null;
+        return true;
+    }
+
+    void discardResult() {
+        ResultHolder<T> discarded = result;
+        result = ResultHolder.empty();
+        discarded.release();
+    }
+
+    ResultRetention getEffectiveRetention() {
+        ResultRetention retention = resultRetention;
+        if (retention != null) {
+            return retention;
+        }
+        Job currentJob = job;
+        return currentJob == null ? ResultRetention.KEEP : currentJob.getResultRetention();
+    }
+
+    private void storeResult(@Nullable T value) {
+        ResultHolder<T> previous = result;
+        result = ResultHolder.of(value, getEffectiveRetention());
+        previous.release();
+    }
+
+    void reset() {
+        discardResult();
+        runFingerprint = null;
+        savedStatus = JobStatus.READY;
+        changeStatus(validatedStatus());
+        Job currentJob = job;
+        if (currentJob != null) {
+            currentJob.recordStatus(this, JobStatus.READY);
         }
     }
 
     void waiting() {
-        checkAction(JobAction.WAIT);
-        changeStatus(JobStatus.WAITING);
+        transition(JobAction.WAIT, JobStatus.WAITING);
     }
 
     void unwaiting() {
         if (status == JobStatus.WAITING) {
-            validate(null);
+            changeStatus(JobStatus.WAITING, validatedStatus());
         }
     }
 
     @SuppressWarnings("checkstyle:HiddenField")
     void link(Job job) {
         this.job = job;
-        job.listenStep(status);
+        job.listenStep(this, null, status);
+    }
+
+    @SuppressWarnings("checkstyle:HiddenField")
+    void bind(Job job) {
+        this.job = job;
     }
 
     void unlink() {
         job = null;
     }
 
+    @Nullable
+    Job getJob() {
+        return job;
+    }
+
+    @Nullable
+    Job getSubJob() {
+        return subJob;
+    }
+
+    boolean hasSubJobProgress() {
+        JobStatus current = status;
+        return subJob != null
+                && (current == JobStatus.ERROR || current == JobStatus.CANCELLED || current == JobStatus.TIMEOUT)
+                && subJob.hasProgress();
+    }
+
+    void restore(JobStatus restoredStatus) {
+        savedStatus = restoredStatus;
+        changeStatus(restoredStatus);
+    }
+
+    @SuppressWarnings("unchecked")
+    void restoreResult(@Nullable Object value) {
+        storeResult((T) value);
+    }
+
+    void restoreChunks(long chunks) {
+        restoredChunks.set(chunks);
+    }
+
+    long takeRestoredChunks() {
+        return restoredChunks.getAndSet(0);
+    }
+
+    void recordChunk(boolean committed) {
+        Job currentJob = job;
+        if (currentJob != null) {
+            currentJob.recordChunk(this, committed);
+        }
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    @SuppressWarnings("checkstyle:HiddenField")
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    int getProgressIndex() {
+        return progressIndex;
+    }
+
+    @SuppressWarnings("checkstyle:HiddenField")
+    void setProgressIndex(int progressIndex) {
+        this.progressIndex = progressIndex;
+    }
+
+    private JobStatus compareAndSetStatus(JobAction action, JobStatus newStatus) {
+        while (true) {
+            JobStatus current = status;
+            current.checkAction(action);
+            if (current == newStatus || STATUS.compareAndSet(this, current, newStatus)) {
+                return current;
+            }
+        }
+    }
+
+    private void transition(JobAction action, JobStatus newStatus) {
+        JobStatus previous = compareAndSetStatus(action, newStatus);
+        statusChanged(previous, newStatus);
+    }
+
     private void changeStatus(JobStatus newStatus) {
-        if (status == newStatus) {
+        while (true) {
+            JobStatus current = status;
+            if (current == newStatus) {
+                return;
+            }
+            if (STATUS.compareAndSet(this, current, newStatus)) {
+                statusChanged(current, newStatus);
+                return;
+            }
+        }
+    }
+
+    private void changeStatus(JobStatus expectedStatus, JobStatus newStatus) {
+        if (expectedStatus != newStatus && STATUS.compareAndSet(this, expectedStatus, newStatus)) {
+            statusChanged(expectedStatus, newStatus);
+        }
+    }
+
+    private void statusChanged(@Nullable JobStatus oldStatus, JobStatus newStatus) {
+        if (oldStatus == newStatus) {
             return;
         }
-        if (JobStatus.SAVED_STATUSES.contains(newStatus)) {
+        boolean saved = JobStatus.SAVED_STATUSES.contains(newStatus) && savedStatus != newStatus;
+        if (saved) {
             savedStatus = newStatus;
         }
-        status = newStatus;
         if (listener != null) {
             listener.accept(newStatus);
         }
-        if (job != null) {
-            job.listenStep(newStatus);
+        Job currentJob = job;
+        if (currentJob != null) {
+            MetricsSink metricsSink = currentJob.getMetricsSink();
+            if (metricsSink != null) {
+                recordMetrics(metricsSink, oldStatus, newStatus);
+            }
+            currentJob.listenStep(this, oldStatus, newStatus);
+            if (saved) {
+                currentJob.recordStatus(this, newStatus);
+            }
         }
     }
 
-    private void checkAction(JobAction action) {
-        status.checkAction(action);
+    private void recordMetrics(MetricsSink metricsSink, @Nullable JobStatus oldStatus, JobStatus newStatus) {
+        long now = System.nanoTime();
+        long[] times = transitionTimes;
+        if (times == null) {
+            times = new long[JobStatus.values().length];
+            transitionTimes = times;
+        }
+        times[newStatus.ordinal()] = now;
+        String stepName = getName();
+        metricsSink.stepStatus(stepName, newStatus);
+        if (oldStatus == JobStatus.RUNNING && times[JobStatus.RUNNING.ordinal()] != 0) {
+            metricsSink.stepRun(stepName, newStatus, now - times[JobStatus.RUNNING.ordinal()]);
+        } else if (oldStatus == JobStatus.ROLLBACK && times[JobStatus.ROLLBACK.ordinal()] != 0) {
+            metricsSink.stepRollback(stepName, newStatus, now - times[JobStatus.ROLLBACK.ordinal()]);
+        }
     }
 
     public static <T> Step<T> of(Supplier<T> run) {
@@ -154,7 +830,58 @@ public class Step<T> {
     }
 
     public static <T> Step<T> of(StepRunner<T> runner) {
-        Supplier<Runnable> rollbackSupplier = runner::rollback;
-        return new Step<>(runner::run, rollbackSupplier, runner::validate, runner::status);
+        Supplier<T> run = runner::run;
+        Step<T> step = new Step<>(run, () -> CompletableFuture.completedFuture(run.get()),
+                runner::rollback, runner::validate, runner::status);
+        step.setName(runner.name());
+        step.setFingerprint(runner::fingerprint);
+        step.setIdempotencyKey(runner.idempotencyKey());
+        step.setResources(runner.resources());
+        runner.attach(step);
+        return step;
+    }
+
+    public static <T> Step<T> of(StepRunner<T> runner, ValidationMode validationMode) {
+        Step<T> step = of(runner);
+        step.setValidationMode(validationMode);
+        return step;
+    }
+
+    private void wrap(Job wrapped) {
+        subJob = wrapped;
+        stopHandler = wrapped::stop;
+        wrapped.addEventListener(this::subJobChanged);
+        if (wrapped.getStatus() == JobStatus.SKIPPED) {
+            changeStatus(JobStatus.SKIPPED);
+        }
+    }
+
+    public static Step<Void> of(Job job) {
+        Step<Void> step = new Step<>(() -> {
+            job.run();
+            return null;
+        }, job::rollback, job::validate, null);
+        step.wrap(job);
+        return step;
+    }
+
+    public static Step<Void> ofAsync(Job job, Executor executor) {
+        Step<Void> step = new Step<>(() -> {
+            job.run(executor);
+            return null;
+        }, () -> job.runAsync(executor), () -> job::rollback, job::validate, null);
+        step.wrap(job);
+        return step;
+    }
+
+    public static <T> Step<T> ofAsync(Supplier<? extends CompletionStage<T>> run) {
+        return ofAsync(run, null, null, null);
+    }
+
+    public static <T> Step<T> ofAsync(Supplier<? extends CompletionStage<T>> run,
+                                      @Nullable Runnable rollback,
+                                      @Nullable Supplier<Boolean> validator,
+                                      @Nullable Consumer<JobStatus> listener) {
+        return new Step<>(() -> Futures.join(run.get()), run, () -> rollback, validator, listener);
     }
 }
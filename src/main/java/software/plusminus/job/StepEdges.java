@@ -0,0 +1,41 @@
+package software.plusminus.job;
+
+final class StepEdges {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[][] dependencies;
+    private final int[][] dependents;
+
+    StepEdges(int[][] dependencies) {
+        this.dependencies = dependencies;
+        int[] counts = new int[dependencies.length];
+        for (int[] stepDependencies : dependencies) {
+            for (int dependency : stepDependencies) {
+                counts[dependency]++;
+            }
+        }
+        dependents = new int[dependencies.length][];
+        for (int i = 0; i < counts.length; i++) {
+            dependents[i] = counts[i] == 0 ? NONE : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < dependencies.length; i++) {
+            for (int dependency : dependencies[i]) {
+                dependents[dependency][counts[dependency]++] = i;
+            }
+        }
+    }
+
+    int size() {
+        return dependencies.length;
+    }
+
+    int[] dependencies(int index) {
+        return dependencies[index];
+    }
+
+    int[] dependents(int index) {
+        return dependents[index];
+    }
+}
@@ -0,0 +1,172 @@
+package software.plusminus.job;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+class StepGraph {
+
+    private final Map<Step<?>, List<Step<?>>> dependencies = new HashMap<>();
+    private final Map<Step<?>, List<Step<?>>> dependents = new HashMap<>();
+    private final Map<Step<?>, Map<Step<?>, Pipe<?>>> pipesTo = new HashMap<>();
+    private final Map<Step<?>, List<Pipe<?>>> pipesFrom = new HashMap<>();
+    @Nullable
+    private Step<?>[] sharedSteps;
+    @Nullable
+    private StepEdges sharedEdges;
+
+    void share(Step<?>[] steps, StepEdges edges) {
+        if (!dependencies.isEmpty() || sharedEdges != null) {
+            throw new IllegalStateException("Cannot share edges: the graph already has edges");
+        }
+        sharedSteps = steps;
+        sharedEdges = edges;
+    }
+
+    void add(Step<?> step, Step<?>... dependsOn) {
+        materialize();
+        for (Step<?> dependency : dependsOn) {
+            dependencies.computeIfAbsent(step, key -> new ArrayList<>()).add(dependency);
+            dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(step);
+        }
+    }
+
+    void addPipe(Step<?> producer, Step<?> consumer, Pipe<?> pipe) {
+        materialize();
+        if (!dependencies(consumer).contains(producer)) {
+            add(consumer, producer);
+        }
+        pipesTo.computeIfAbsent(consumer, key -> new HashMap<>()).put(producer, pipe);
+        pipesFrom.computeIfAbsent(producer, key -> new ArrayList<>()).add(pipe);
+    }
+
+    void remove(Step<?> step) {
+        materialize();
+        List<Step<?>> removed = dependencies.remove(step);
+        if (removed == null) {
+            return;
+        }
+        for (Step<?> dependency : removed) {
+            List<Step<?>> list = dependents.get(dependency);
+            list.remove(step);
+            if (list.isEmpty()) {
+                dependents.remove(dependency);
+            }
+        }
+    }
+
+    void replace(Step<?> from, Step<?> to) {
+        materialize();
+        List<Step<?>> fromDependencies = dependencies.remove(from);
+        if (fromDependencies != null) {
+            dependencies.put(to, fromDependencies);
+            fromDependencies.forEach(dependency -> Collections.replaceAll(dependents.get(dependency), from, to));
+        }
+        List<Step<?>> fromDependents = dependents.remove(from);
+        if (fromDependents != null) {
+            dependents.put(to, fromDependents);
+            fromDependents.forEach(dependent -> Collections.replaceAll(dependencies.get(dependent), from, to));
+        }
+    }
+
+    List<Step<?>> dependencies(Step<?> step) {
+        int index = sharedIndex(step);
+        if (index >= 0) {
+            return sharedSteps(sharedEdges.dependencies(index));
+        }
+        return dependencies.getOrDefault(step, Collections.emptyList());
+    }
+
+    List<Step<?>> blockingDependencies(Step<?> step) {
+        Map<Step<?>, Pipe<?>> pipes = pipesTo.get(step);
+        if (pipes == null) {
+            return dependencies(step);
+        }
+        List<Step<?>> blocking = new ArrayList<>(dependencies(step));
+        blocking.removeAll(pipes.keySet());
+        return blocking;
+    }
+
+    Collection<Pipe<?>> pipesTo(Step<?> step) {
+        Map<Step<?>, Pipe<?>> pipes = pipesTo.get(step);
+        return pipes == null ? Collections.emptyList() : pipes.values();
+    }
+
+    Collection<Step<?>> producers(Step<?> step) {
+        Map<Step<?>, Pipe<?>> pipes = pipesTo.get(step);
+        return pipes == null ? Collections.emptyList() : pipes.keySet();
+    }
+
+    List<Pipe<?>> pipesFrom(Step<?> step) {
+        return pipesFrom.getOrDefault(step, Collections.emptyList());
+    }
+
+    boolean hasPipes() {
+        return !pipesFrom.isEmpty();
+    }
+
+    boolean hasPipes(Step<?> step) {
+        return pipesTo.containsKey(step) || pipesFrom.containsKey(step);
+    }
+
+    List<Step<?>> dependents(Step<?> step) {
+        int index = sharedIndex(step);
+        if (index >= 0) {
+            return sharedSteps(sharedEdges.dependents(index));
+        }
+        return dependents.getOrDefault(step, Collections.emptyList());
+    }
+
+    boolean hasDependents(Step<?> step) {
+        int index = sharedIndex(step);
+        if (index >= 0) {
+            return sharedEdges.dependents(index).length > 0;
+        }
+        return dependents.containsKey(step);
+    }
+
+    private int sharedIndex(Step<?> step) {
+        Step<?>[] steps = sharedSteps;
+        if (steps == null) {
+            return -1;
+        }
+        int index = step.getIndex();
+        return index >= 0 && index < steps.length && steps[index] == step ? index : -1;
+    }
+
+    private List<Step<?>> sharedSteps(int[] indices) {
+        if (indices.length == 0) {
+            return Collections.emptyList();
+        }
+        Step<?>[] steps = sharedSteps;
+        List<Step<?>> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(steps[index]);
+        }
+        return result;
+    }
+
+    private void materialize() {
+        Step<?>[] steps = sharedSteps;
+        StepEdges edges = sharedEdges;
+        if (steps == null || edges == null) {
+            return;
+        }
+        sharedSteps = null;
+        sharedEdges = null;
+        for (int i = 0; i < edges.size(); i++) {
+            int[] stepDependencies = edges.dependencies(i);
+            if (stepDependencies.length > 0) {
+                Step<?>[] dependsOn = new Step<?>[stepDependencies.length];
+                for (int j = 0; j < stepDependencies.length; j++) {
+                    dependsOn[j] = steps[stepDependencies[j]];
+                }
+                add(steps[i], dependsOn);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package software.plusminus.job;
 
+import java.util.Collection;
+import java.util.Collections;
 import javax.annotation.Nullable;
 
 public interface StepRunner<T> {
@@ -11,7 +13,28 @@ public interface StepRunner<T> {
 
     void status(JobStatus status);
 
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    @Nullable
+    default Object fingerprint() {
+        return null;
+    }
+
+    @Nullable
+    default Object idempotencyKey() {
+        return null;
+    }
+
+    default Collection<String> resources() {
+        return Collections.emptyList();
+    }
+
     default boolean validate() {
-        return ValidationUtils.validate(this).isEmpty();
+        return ValidationUtils.isValid(this);
+    }
+
+    default void attach(Step<T> step) {
     }
 }
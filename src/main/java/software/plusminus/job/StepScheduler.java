@@ -0,0 +1,151 @@
+package software.plusminus.job;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+class StepScheduler {
+
+    private final Executor executor;
+    private final Function<Step<?>, CompletionStage<?>> action;
+    private final int parallelism;
+    private final FailurePolicy failurePolicy;
+    private final Map<Step<?>, Integer> blockers = new HashMap<>();
+    private final Map<Step<?>, List<Step<?>>> successors = new HashMap<>();
+    private final Deque<Step<?>> ready = new ArrayDeque<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private int inFlight;
+    @Nullable
+    private Throwable failure;
+
+    StepScheduler(Collection<Step<?>> steps,
+                  Function<Step<?>, Collection<Step<?>>> predecessors,
+                  Function<Step<?>, CompletionStage<?>> action,
+                  Executor executor,
+                  int parallelism,
+                  FailurePolicy failurePolicy) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.action = action;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.failurePolicy = failurePolicy;
+        Set<Step<?>> scheduled = new HashSet<>(steps);
+        for (Step<?> step : steps) {
+            int count = 0;
+            for (Step<?> predecessor : predecessors.apply(step)) {
+                if (scheduled.contains(predecessor)) {
+                    count++;
+                    successors.computeIfAbsent(predecessor, key -> new ArrayList<>()).add(step);
+                }
+            }
+            if (count == 0) {
+                ready.add(step);
+            } else {
+                blockers.put(step, count);
+            }
+        }
+    }
+
+    CompletableFuture<Void> start() {
+        List<Step<?>> toSubmit;
+        boolean finished;
+        synchronized (this) {
+            toSubmit = drainReady();
+            finished = inFlight == 0;
+        }
+        if (finished) {
+            completion.complete(null);
+        }
+        toSubmit.forEach(this::submit);
+        return completion;
+    }
+
+    private void submit(Step<?> step) {
+        try {
+            executor.execute(() -> execute(step));
+        } catch (RejectedExecutionException e) {
+            complete(step, e);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void execute(Step<?> step) {
+        CompletionStage<?> stage;
+        try {
+            stage = action.apply(step);
+        } catch (Throwable e) {
+            complete(step, e);
+            return;
+        }
+        stage.whenComplete((result, error) -> complete(step, Futures.unwrap(error)));
+    }
+
+    private void complete(Step<?> step, @Nullable Throwable error) {
+        List<Step<?>> toSubmit;
+        boolean finished;
+        synchronized (this) {
+            inFlight--;
+            if (error == null) {
+                release(step);
+            } else if (failure == null) {
+                failure = error;
+            } else {
+                failure.addSuppressed(error);
+            }
+            boolean stopped = failure != null && failurePolicy == FailurePolicy.STOP;
+            toSubmit = stopped ? Collections.emptyList() : drainReady();
+            finished = inFlight == 0 && (stopped || ready.isEmpty());
+        }
+        toSubmit.forEach(this::submit);
+        if (finished) {
+            finish();
+        }
+    }
+
+    private void release(Step<?> step) {
+        for (Step<?> successor : successors.getOrDefault(step, Collections.emptyList())) {
+            int count = blockers.merge(successor, -1, Integer::sum);
+            if (count == 0) {
+                blockers.remove(successor);
+                ready.add(successor);
+            }
+        }
+    }
+
+    private List<Step<?>> drainReady() {
+        int count = Math.min(ready.size(), parallelism - inFlight);
+        List<Step<?>> drained = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            drained.add(ready.poll());
+        }
+        inFlight += drained.size();
+        return drained;
+    }
+
+    private void finish() {
+        Throwable error;
+        synchronized (this) {
+            error = failure;
+        }
+        if (error == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(error);
+        }
+    }
+}
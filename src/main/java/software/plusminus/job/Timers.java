@@ -0,0 +1,43 @@
+package software.plusminus.job;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+@UtilityClass
+class Timers {
+
+    private final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+    @Nullable
+    ScheduledFuture<?> schedule(@Nullable Duration delay, Runnable task) {
+        if (delay == null) {
+            return null;
+        }
+        return schedule(delay.toNanos(), task);
+    }
+
+    ScheduledFuture<?> schedule(long delayNanos, Runnable task) {
+        return SCHEDULER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void cancel(@Nullable ScheduledFuture<?> timer) {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "plusminus-job-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
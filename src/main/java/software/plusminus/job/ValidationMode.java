@@ -0,0 +1,8 @@
+package software.plusminus.job;
+
+public enum ValidationMode {
+
+    ALWAYS,
+    WHEN_DIRTY;
+
+}
@@ -19,7 +19,25 @@ public class ValidationUtils {
 
     private static final Validator VALIDATOR = VALIDATOR_FACTORY.getValidator();
 
+    private static final ClassValue<Boolean> CONSTRAINED = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return VALIDATOR.getConstraintsForClass(type).isBeanConstrained();
+        }
+    };
+
     public <T> Set<ConstraintViolation<T>> validate(T object) {
         return VALIDATOR.validate(object);
     }
+
+    public boolean isValid(Object object) {
+        if (!isConstrained(object.getClass())) {
+            return true;
+        }
+        return VALIDATOR.validate(object).isEmpty();
+    }
+
+    public boolean isConstrained(Class<?> type) {
+        return CONSTRAINED.get(type);
+    }
 }
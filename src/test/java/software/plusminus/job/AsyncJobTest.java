@@ -0,0 +1,86 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class AsyncJobTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+    private CompletableFuture<String> stage = new CompletableFuture<>();
+    private AtomicBoolean rolledBack = new AtomicBoolean();
+    private Step<String> asyncStep = Step.ofAsync(() -> stage, () -> rolledBack.set(true), null, null);
+    private Job job = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void asyncStepSucceedsWhenStageCompletes() {
+        CompletableFuture<String> future = asyncStep.runAsync();
+
+        check(asyncStep.getStatus()).is(JobStatus.RUNNING);
+        stage.complete("result");
+
+        check(future.join()).is("result");
+        check(asyncStep.getStatus()).is(JobStatus.SUCCESS);
+        check(asyncStep.getResult()).is("result");
+    }
+
+    @Test
+    void asyncStepFailsWhenStageFails() {
+        CompletableFuture<String> future = asyncStep.runAsync();
+
+        stage.completeExceptionally(new IllegalStateException("Test error"));
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        check(exception.getCause().getMessage()).is("Test error");
+        check(asyncStep.getStatus()).is(JobStatus.ERROR);
+    }
+
+    @Test
+    void runAsyncDoesNotBlockCaller() {
+        job.addStep(asyncStep);
+        job.addStep(Step.of(() -> "sync"), asyncStep);
+
+        CompletableFuture<Void> future = job.runAsync(executor);
+
+        await().until(() -> asyncStep.getStatus() == JobStatus.RUNNING);
+        check(job.getStatus()).is(JobStatus.RUNNING);
+        check(future.isDone()).is(false);
+        stage.complete("result");
+        future.join();
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void syncRunOfAsyncStep() {
+        stage.complete("result");
+
+        check(asyncStep.run()).is("result");
+        check(asyncStep.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void rollbackAsync() {
+        job.addStep(asyncStep);
+        stage.complete("result");
+        job.run();
+
+        job.rollbackAsync(executor).join();
+
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(rolledBack.get()).is(true);
+    }
+}
@@ -0,0 +1,123 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.awaitility.Awaitility.await;
+import static software.plusminus.check.Checks.check;
+
+class AsyncStatusDispatcherTest {
+
+    private Job job = new Job();
+    private Step<Void> step1 = Step.of(() -> null);
+    private Step<Void> step2 = Step.of(() -> null);
+    private List<StatusEvent> delivered = new CopyOnWriteArrayList<>();
+    private CountDownLatch released = new CountDownLatch(1);
+
+    @Test
+    void deliversJobEventsInOrder() {
+        AsyncStatusDispatcher dispatcher = new AsyncStatusDispatcher(delivered::addAll, 16, 4,
+                BackpressurePolicy.BLOCK);
+        job.addStep(step1);
+        job.addEventListener(dispatcher);
+
+        job.run();
+        dispatcher.close();
+
+        check(transitions(step1)).is("READY->WAITING", "WAITING->RUNNING", "RUNNING->SUCCESS");
+        check(transitions(null)).is("READY->WAITING", "WAITING->RUNNING", "RUNNING->SUCCESS");
+    }
+
+    @Test
+    void dropsOldestEventsWhenFull() {
+        AsyncStatusDispatcher dispatcher = blockedDispatcher(BackpressurePolicy.DROP_OLDEST);
+
+        dispatcher.accept(event(step1, JobStatus.WAITING, JobStatus.RUNNING));
+        dispatcher.accept(event(step1, JobStatus.RUNNING, JobStatus.SUCCESS));
+        dispatcher.accept(event(step2, JobStatus.READY, JobStatus.WAITING));
+        dispatcher.accept(event(step2, JobStatus.WAITING, JobStatus.RUNNING));
+        released.countDown();
+        dispatcher.close();
+
+        check(dispatcher.getDropped()).is(2L);
+        check(transitions(step1)).is("READY->WAITING");
+        check(transitions(step2)).is("READY->WAITING", "WAITING->RUNNING");
+    }
+
+    @Test
+    void coalescesPendingEventsOfTheSameStep() {
+        AsyncStatusDispatcher dispatcher = blockedDispatcher(BackpressurePolicy.COALESCE);
+
+        dispatcher.accept(event(step1, JobStatus.WAITING, JobStatus.RUNNING));
+        dispatcher.accept(event(step2, JobStatus.READY, JobStatus.WAITING));
+        dispatcher.accept(event(step1, JobStatus.RUNNING, JobStatus.SUCCESS));
+        released.countDown();
+        dispatcher.close();
+
+        check(dispatcher.getDropped()).is(0L);
+        check(transitions(step1)).is("READY->WAITING", "WAITING->SUCCESS");
+        check(transitions(step2)).is("READY->WAITING");
+    }
+
+    @Test
+    void doesNotCoalesceBelowCapacity() {
+        AsyncStatusDispatcher dispatcher = new AsyncStatusDispatcher(delivered::addAll, 16, 4,
+                BackpressurePolicy.COALESCE);
+
+        dispatcher.accept(event(step1, JobStatus.READY, JobStatus.WAITING));
+        dispatcher.accept(event(step1, JobStatus.WAITING, JobStatus.RUNNING));
+        dispatcher.accept(event(step1, JobStatus.RUNNING, JobStatus.SUCCESS));
+        dispatcher.close();
+
+        check(transitions(step1)).is("READY->WAITING", "WAITING->RUNNING", "RUNNING->SUCCESS");
+    }
+
+    @Test
+    void blockedProducerDoesNotHoldJobMonitor() throws Exception {
+        AsyncStatusDispatcher dispatcher = blockedDispatcher(BackpressurePolicy.BLOCK);
+        job.addStep(step1);
+        job.addEventListener(dispatcher);
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync(job::run);
+        await().until(() -> dispatcher.getQueueSize() == 2);
+        long retained = CompletableFuture.supplyAsync(job::getRetainedResultBytes).get(5, TimeUnit.SECONDS);
+        released.countDown();
+        run.get(5, TimeUnit.SECONDS);
+        dispatcher.close();
+
+        check(retained).is(0L);
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(transitions(step1)).is("READY->WAITING", "READY->WAITING", "WAITING->RUNNING", "RUNNING->SUCCESS");
+    }
+
+    private AsyncStatusDispatcher blockedDispatcher(BackpressurePolicy policy) {
+        AsyncStatusDispatcher dispatcher = new AsyncStatusDispatcher(batch -> {
+            delivered.addAll(batch);
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 2, 8, policy);
+        dispatcher.accept(event(step1, JobStatus.READY, JobStatus.WAITING));
+        await().until(() -> delivered.size() == 1);
+        return dispatcher;
+    }
+
+    private StatusEvent event(Step<?> step, JobStatus from, JobStatus to) {
+        return new StatusEvent(job, step, from, to, System.currentTimeMillis());
+    }
+
+    private List<String> transitions(Step<?> step) {
+        return delivered.stream()
+                .filter(event -> event.getStep() == step)
+                .map(event -> event.getOldStatus() + "->" + event.getNewStatus())
+                .collect(Collectors.toList());
+    }
+}
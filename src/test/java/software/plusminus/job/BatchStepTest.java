@@ -0,0 +1,199 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class BatchStepTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+    private List<List<Integer>> processed = new CopyOnWriteArrayList<>();
+    private List<List<Integer>> compensated = new CopyOnWriteArrayList<>();
+    private AtomicBoolean failOnSeven = new AtomicBoolean(true);
+    private Job job = new Job();
+    private Path file;
+
+    BatchStepTest() throws IOException {
+        file = Files.createTempFile("batch", ".journal");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        executor.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void processesItemsInChunks() {
+        BatchStep<Integer> batch = batch(10, 3);
+        Step<Long> step = Step.of(batch);
+        job.addStep(step);
+        failOnSeven.set(false);
+
+        job.run();
+
+        check(step.getResult()).is(10L);
+        check(processed.size()).is(4);
+        check(processed.get(3).size()).is(1);
+        check(batch.getWatermark()).is(4L);
+    }
+
+    @Test
+    void rerunResumesFromCommittedChunk() {
+        BatchStep<Integer> batch = batch(10, 3);
+        Step<Long> step = Step.of(batch);
+        job.addStep(step);
+
+        assertThrows(IllegalStateException.class, job::run);
+        check(batch.getCommittedChunks()).is(2L);
+        check(batch.getCommittedItems()).is(6L);
+
+        failOnSeven.set(false);
+        processed.clear();
+        job.run();
+
+        check(step.getStatus()).is(JobStatus.SUCCESS);
+        check(step.getResult()).is(10L);
+        check(processed.size()).is(2);
+        check(processed.get(0).get(0)).is(6);
+    }
+
+    @Test
+    void rollbackCompensatesOnlyCommittedChunks() {
+        BatchStep<Integer> batch = batch(10, 3);
+        job.addStep(Step.of(batch));
+        assertThrows(IllegalStateException.class, job::run);
+
+        batch.rollback().run();
+
+        check(compensated.size()).is(2);
+        check(compensated.get(0).get(2)).is(5);
+        check(compensated.get(1).get(0)).is(0);
+        check(batch.getCommittedChunks()).is(0L);
+    }
+
+    @Test
+    void jobRollbackCompensatesAllChunks() {
+        BatchStep<Integer> batch = batch(10, 5);
+        job.addStep(Step.of(batch));
+        failOnSeven.set(false);
+        job.run();
+
+        job.rollback();
+
+        check(compensated.size()).is(2);
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+    }
+
+    @Test
+    void restartResumesFromJournaledChunk() {
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob(batch(10, 3));
+            job.attachJournal(journal);
+            assertThrows(IllegalStateException.class, job::run);
+        }
+        failOnSeven.set(false);
+        processed.clear();
+
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            BatchStep<Integer> batch = batch(10, 3);
+            Job job = newJob(batch);
+            job.attachJournal(journal);
+            job.run();
+
+            check(job.getStatus()).is(JobStatus.SUCCESS);
+            check(processed.size()).is(2);
+            check(processed.get(0).get(0)).is(6);
+            check(batch.getCommittedItems()).is(10L);
+        }
+    }
+
+    @Test
+    void restartRollbackCompensatesJournaledChunksInReverse() {
+        failOnSeven.set(false);
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob(batch(10, 3));
+            job.attachJournal(journal);
+            job.run();
+        }
+
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob(batch(10, 3));
+            job.attachJournal(journal);
+            job.rollback();
+
+            check(compensated).is(Arrays.asList(9), Arrays.asList(6, 7, 8), Arrays.asList(3, 4, 5),
+                    Arrays.asList(0, 1, 2));
+            check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        }
+    }
+
+    @Test
+    void parallelChunksAreBounded() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BatchStep<Integer> batch = BatchStep.of(() -> IntStream.range(0, 100).iterator(), 5, items -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            TestUtils.sleep(5);
+            running.decrementAndGet();
+        });
+        batch.setExecutor(executor);
+        batch.setParallelism(3);
+        Step<Long> step = Step.of(batch);
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getResult()).is(100L);
+        check(batch.getWatermark()).is(20L);
+        check(maxRunning.get() <= 3).is(true);
+    }
+
+    @Test
+    void parallelFailureKeepsOtherCommittedChunks() {
+        BatchStep<Integer> batch = batch(10, 1);
+        batch.setExecutor(executor);
+        batch.setParallelism(2);
+        job.addStep(Step.of(batch));
+
+        assertThrows(IllegalStateException.class, job::run);
+        failOnSeven.set(false);
+        processed.clear();
+        job.run();
+
+        check(processed.stream().anyMatch(items -> items.get(0) == 7)).is(true);
+        check(processed.stream().anyMatch(items -> items.get(0) == 0)).is(false);
+        check(batch.getCommittedItems()).is(10L);
+    }
+
+    private Job newJob(BatchStep<Integer> batch) {
+        Job newJob = new Job();
+        newJob.addStep(Step.of(batch));
+        return newJob;
+    }
+
+    private BatchStep<Integer> batch(int items, int chunkSize) {
+        return new BatchStep<>(() -> IntStream.range(0, items).iterator(), chunkSize, chunk -> {
+            if (failOnSeven.get() && chunk.contains(7)) {
+                throw new IllegalStateException("Cannot process 7");
+            }
+            processed.add(chunk);
+        }, compensated::add);
+    }
+}
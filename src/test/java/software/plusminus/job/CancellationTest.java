@@ -0,0 +1,118 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class CancellationTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+    private CountDownLatch started = new CountDownLatch(1);
+    private Job job = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stepTimeoutInterruptsRun() {
+        Step<Void> done = Step.of(() -> null);
+        Step<Void> hanging = Step.of(this::hang);
+        Step<Void> next = Step.of(() -> null);
+        hanging.setTimeout(Duration.ofMillis(50));
+        job.addStep(done);
+        job.addStep(hanging);
+        job.addStep(next);
+
+        assertThrows(CancellationException.class, job::run);
+
+        check(hanging.getStatus()).is(JobStatus.TIMEOUT);
+        check(next.getStatus()).is(JobStatus.READY);
+        check(job.getStatus()).is(JobStatus.TIMEOUT);
+        check(Thread.currentThread().isInterrupted()).is(false);
+    }
+
+    @Test
+    void cancelStopsRunningJob() throws InterruptedException {
+        Step<Void> hanging = Step.of(this::hang);
+        Step<Void> next = Step.of(() -> null);
+        job.addStep(hanging);
+        job.addStep(next);
+        CompletableFuture<Void> run = CompletableFuture.runAsync(job::run, executor);
+        started.await(5, TimeUnit.SECONDS);
+
+        job.cancel();
+
+        check(run.handle((value, error) -> Futures.unwrap(error)).join() instanceof CancellationException).is(true);
+        check(hanging.getStatus()).is(JobStatus.CANCELLED);
+        check(next.getStatus()).is(JobStatus.READY);
+        check(job.getStatus()).is(JobStatus.CANCELLED);
+    }
+
+    @Test
+    void jobTimeoutStopsAsyncRun() {
+        Step<Void> hanging = Step.ofAsync(CompletableFuture::new);
+        job.addStep(hanging);
+        job.setTimeout(Duration.ofMillis(50));
+
+        CompletableFuture<Void> run = job.runAsync(executor);
+
+        check(run.handle((value, error) -> Futures.unwrap(error)).join() instanceof CancellationException).is(true);
+        check(hanging.getStatus()).is(JobStatus.TIMEOUT);
+        check(job.getStatus()).is(JobStatus.TIMEOUT);
+    }
+
+    @Test
+    void cancelledJobCanBeRolledBackAndRerun() throws InterruptedException {
+        StringBuilder rolledBack = new StringBuilder();
+        Step<Void> done = new Step<>(() -> null, () -> rolledBack.append("done"), null, null);
+        Step<Void> hanging = Step.of(this::hang);
+        job.addStep(done);
+        job.addStep(hanging);
+        CompletableFuture<Void> run = CompletableFuture.runAsync(job::run, executor);
+        started.await(5, TimeUnit.SECONDS);
+        job.cancel();
+        await().until(run::isDone);
+
+        job.rollback();
+
+        check(rolledBack.toString()).is("done");
+        check(done.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(hanging.getStatus()).is(JobStatus.CANCELLED);
+    }
+
+    @Test
+    void finishedStepIgnoresCancel() {
+        Step<Void> step = Step.of(() -> null);
+        job.addStep(step);
+        job.run();
+
+        step.cancel();
+        job.cancel();
+
+        check(step.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    private Void hang() {
+        started.countDown();
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        return null;
+    }
+}
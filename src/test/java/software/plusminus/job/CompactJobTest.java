@@ -0,0 +1,123 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class CompactJobTest {
+
+    private List<String> events = new ArrayList<>();
+
+    @Test
+    void runsAndRollsBackAllSteps() {
+        CompactJob job = new CompactJob(1000, step -> events.add("run " + step),
+                step -> events.add("rollback " + step));
+
+        job.run();
+
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(job.count(JobStatus.SUCCESS)).is(1000);
+        check(job.getProgressSize()).is(1000);
+        check(events.get(999)).is("run 999");
+
+        job.rollback();
+
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(events.get(1000)).is("rollback 999");
+        check(job.getProgressSize()).is(0);
+    }
+
+    @Test
+    void statusReadsDoNotWaitForRunningStep() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompactJob job = new CompactJob(3, step -> {
+            if (step == 1) {
+                started.countDown();
+                TestUtils.awaitLatch(release);
+            }
+        }, null);
+        CompletableFuture<Void> run = CompletableFuture.runAsync(job::run);
+        started.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<JobStatus> status = CompletableFuture.supplyAsync(() -> job.getStatus(1));
+        check(status.get(1, TimeUnit.SECONDS)).is(JobStatus.RUNNING);
+        check(job.getStatus()).is(JobStatus.RUNNING);
+        check(job.count(JobStatus.SUCCESS)).is(1);
+        check(job.getProgressSize()).is(1);
+        check(job.nextRunnable(0)).is(2);
+        assertThrows(IllegalStateException.class, job::rollback);
+
+        release.countDown();
+        run.get(5, TimeUnit.SECONDS);
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void rerunContinuesAfterError() {
+        boolean[] fail = {true};
+        CompactJob job = new CompactJob(5, step -> {
+            if (step == 3 && fail[0]) {
+                throw new IllegalStateException("Test error");
+            }
+            events.add("run " + step);
+        }, null);
+
+        assertThrows(IllegalStateException.class, job::run);
+        check(job.getStatus()).is(JobStatus.ERROR);
+        check(job.getStatus(3)).is(JobStatus.ERROR);
+        check(job.nextRunnable(0)).is(3);
+
+        fail[0] = false;
+        events.clear();
+        job.run();
+
+        check(events).is("run 3", "run 4");
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void skippedStepsAreNotRun() {
+        CompactJob job = new CompactJob(3, step -> events.add("run " + step), null);
+        job.skip(1);
+
+        job.run();
+
+        check(events).is("run 0", "run 2");
+        check(job.count(JobStatus.SKIPPED)).is(1);
+
+        job.unskip(1);
+        check(job.getStatus(1)).is(JobStatus.READY);
+    }
+
+    @Test
+    void rollbackWithoutActionReportsNoRollback() {
+        CompactJob job = new CompactJob(2, step -> { }, null);
+        job.run();
+
+        job.rollback();
+
+        check(job.getStatus()).is(JobStatus.NO_ROLLBACK);
+    }
+
+    @Test
+    void listenersAreNotified() {
+        List<JobStatus> jobStatuses = new ArrayList<>();
+        CompactJob job = new CompactJob(2, step -> { }, null);
+        job.setListener(jobStatuses::add);
+        job.setStepListener((status, step) -> events.add(step + " " + status));
+
+        job.run();
+
+        check(jobStatuses).is(JobStatus.RUNNING, JobStatus.SUCCESS, JobStatus.RUNNING, JobStatus.SUCCESS);
+        check(events).is("0 RUNNING", "0 SUCCESS", "1 RUNNING", "1 SUCCESS");
+    }
+}
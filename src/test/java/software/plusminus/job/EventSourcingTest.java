@@ -0,0 +1,329 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class EventSourcingTest {
+
+    private Path directory;
+    private AtomicBoolean error = new AtomicBoolean(true);
+    private AtomicInteger runs = new AtomicInteger();
+
+    EventSourcingTest() throws IOException {
+        directory = Files.createTempDirectory("job-events");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void recordsEveryTransition() {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob();
+            job.attachEventStore(store);
+            assertThrows(IllegalStateException.class, job::run);
+
+            List<JobEvent> events = store.readAfter(0);
+            List<String> stepEvents = events.stream()
+                    .filter(event -> event.getStepIndex() == 1)
+                    .map(event -> event.getType() + " " + event.getAction() + " " + event.getTo())
+                    .collect(Collectors.toList());
+            check(stepEvents).is(
+                    "STATUS WAIT WAITING",
+                    "STATUS RUN RUNNING",
+                    "STATUS RUN ERROR");
+            check(events.stream().anyMatch(event -> event.isJobEvent() && event.getTo() == JobStatus.ERROR))
+                    .is(true);
+            for (int i = 0; i < events.size(); i++) {
+                check(events.get(i).getSequence()).is(i + 1L);
+            }
+        }
+    }
+
+    @Test
+    void recordsStatusBeforeProgressItCaused() {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            Step<Integer> step = new Step<>(runs::incrementAndGet, () -> { }, null, null);
+            job.addStep(step);
+            job.attachEventStore(store);
+            job.run();
+            long sequence = store.readAfter(0).size();
+
+            job.invalidate(step);
+
+            List<String> stepEvents = store.readAfter(sequence).stream()
+                    .filter(event -> event.getStepIndex() == 0)
+                    .map(event -> event.getType() + " " + event.getTo())
+                    .collect(Collectors.toList());
+            check(stepEvents).is(
+                    "STATUS WAITING",
+                    "STATUS ROLLBACK",
+                    "STATUS SUCCESS_ROLLBACK",
+                    "ROLLBACK null",
+                    "STATUS READY");
+        }
+    }
+
+    @Test
+    void replayResumesRun() {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob();
+            job.attachEventStore(store);
+            assertThrows(IllegalStateException.class, job::run);
+        }
+        error.set(false);
+        runs.set(0);
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob();
+            job.attachEventStore(store);
+            check(job.getStatus()).is(JobStatus.ERROR);
+
+            job.run();
+
+            check(job.getStatus()).is(JobStatus.SUCCESS);
+            check(runs.get()).is(1);
+        }
+    }
+
+    @Test
+    void replayStartsFromLatestSnapshot() {
+        int size = 20;
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(size);
+            job.attachEventStore(store, 7, false);
+            job.run();
+            check(store.loadSnapshot() != null).is(true);
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            JobSnapshot snapshot = store.loadSnapshot();
+            check(store.readAfter(snapshot.getSequence()).size() < 7).is(true);
+
+            Job job = newJob(size);
+            job.attachEventStore(store, 7, false);
+            check(job.getStatus()).is(JobStatus.SUCCESS);
+            runs.set(0);
+            job.rollback();
+            check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            List<Step<Integer>> steps = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Step<Integer> step = new Step<>(runs::incrementAndGet, () -> { }, null, null);
+                steps.add(step);
+                job.addStep(step);
+            }
+            job.attachEventStore(store, 7, false);
+            check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+            check(steps.stream().anyMatch(step -> step.getStatus() == JobStatus.SUCCESS)).is(false);
+        }
+    }
+
+    @Test
+    void replayRestoresRecordedResults() {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            job.addStep(Step.of(() -> "value"));
+            job.attachEventStore(store, 100, true);
+            job.run();
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            Step<String> step = Step.of(() -> "other");
+            job.addStep(step);
+            job.attachEventStore(store, 100, true);
+
+            check(step.getStatus()).is(JobStatus.SUCCESS);
+            check(step.getResult()).is("value");
+        }
+    }
+
+    @Test
+    void recordsResultAtTransition() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<String> result = new CopyOnWriteArrayList<>();
+        AtomicBoolean started = new AtomicBoolean();
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            Step<Void> other = Step.of(() -> {
+                await().until(started::get);
+                return null;
+            });
+            Step<List<String>> step = Step.of(() -> {
+                started.set(true);
+                await().until(() -> other.getStatus() == JobStatus.SUCCESS);
+                result.add("value");
+                return result;
+            });
+            job.addStep(step);
+            job.addStep(other);
+            job.addEventListener(event -> {
+                if (event.getStep() == other && event.getNewStatus() == JobStatus.SUCCESS) {
+                    await().until(() -> step.getStatus() == JobStatus.SUCCESS);
+                    TestUtils.sleep(100);
+                    result.add("changed");
+                }
+            });
+            job.attachEventStore(store, 100, true);
+            job.run(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = new Job();
+            Step<List<String>> step = Step.of(ArrayList::new);
+            job.addStep(step);
+            job.addStep(Step.of(() -> null));
+            job.attachEventStore(store, 100, true);
+
+            check(step.getResult()).is(Collections.singletonList("value"));
+        }
+    }
+
+    @Test
+    void replayRestoresBatchChunksFromSnapshot() {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = batchJob(processed);
+            job.attachEventStore(store, 1, false);
+            assertThrows(IllegalStateException.class, job::run);
+            check(store.loadSnapshot().getChunks(0)).is(3L);
+        }
+        error.set(false);
+        processed.clear();
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = batchJob(processed);
+            job.attachEventStore(store, 1, false);
+            job.run();
+
+            check(processed).is(3, 4);
+        }
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob();
+            job.attachEventStore(store);
+            assertThrows(IllegalStateException.class, job::run);
+        }
+        Path log = directory.resolve("events.log");
+        long size = Files.size(log);
+        Files.write(log, new byte[] {0, 0, 0, 64, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            check(Files.size(log)).is(size);
+            Job job = newJob();
+            job.attachEventStore(store);
+            check(job.getStatus()).is(JobStatus.ERROR);
+        }
+    }
+
+    @Test
+    void snapshotPastLostLogTailDoesNotHideLaterEvents() throws IOException {
+        int size = 20;
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(size);
+            job.attachEventStore(store, 7, false);
+            job.run();
+        }
+        try (FileChannel log = FileChannel.open(directory.resolve("events.log"), StandardOpenOption.WRITE)) {
+            log.truncate(FileJobEventStore.HEADER_SIZE);
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(size);
+            job.attachEventStore(store, 7, false);
+            job.rollback();
+            check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(size);
+            job.attachEventStore(store, 7, false);
+            check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        }
+    }
+
+    @Test
+    void rejectsEventsOfAnotherJobShape() {
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(3);
+            job.attachEventStore(store, 1, false);
+            job.run();
+        }
+
+        try (FileJobEventStore store = new FileJobEventStore(directory)) {
+            Job job = newJob(2);
+            assertThrows(IllegalStateException.class, () -> job.attachEventStore(store, 1, false));
+        }
+    }
+
+    private Job newJob() {
+        Job job = new Job();
+        job.addStep(new Step<>(runs::incrementAndGet, () -> { }, null, null));
+        job.addStep(new Step<>(() -> {
+            runs.incrementAndGet();
+            if (error.get()) {
+                throw new IllegalStateException("failed");
+            }
+            return null;
+        }, () -> { }, null, null));
+        return job;
+    }
+
+    private Job batchJob(List<Integer> processed) {
+        Job job = new Job();
+        job.addStep(Step.of(BatchStep.<Integer>of(() -> IntStream.range(0, 5).iterator(), 1, items -> {
+            if (error.get() && items.contains(3)) {
+                throw new IllegalStateException("Cannot process 3");
+            }
+            processed.addAll(items);
+        })));
+        return job;
+    }
+
+    private Job newJob(int size) {
+        Job job = new Job();
+        for (int i = 0; i < size; i++) {
+            job.addStep(new Step<>(runs::incrementAndGet, () -> { }, null, null));
+        }
+        return job;
+    }
+}
@@ -0,0 +1,197 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class IncrementalRunTest {
+
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private Job job = new Job();
+
+    @Test
+    void invalidateRollsBackAndRerunsDownstreamOnly() {
+        Step<Void> first = step("a");
+        Step<Void> second = step("b");
+        Step<Void> third = step("c");
+        Step<Void> independent = step("d");
+        job.addStep(first);
+        job.addStep(second, first);
+        job.addStep(third, second);
+        job.addStep(independent);
+        job.run();
+        events.clear();
+
+        List<Step<?>> stale = job.invalidate(second);
+
+        check(stale).is(second, third);
+        check(events).is("rollback c", "rollback b");
+        check(second.getStatus()).is(JobStatus.READY);
+        check(third.getStatus()).is(JobStatus.READY);
+        check(first.getStatus()).is(JobStatus.SUCCESS);
+        events.clear();
+
+        job.run();
+
+        check(events).is("run b", "run c");
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void invalidateChangedUsesRunnerFingerprints() {
+        ParameterizedRunner source = new ParameterizedRunner("source", 1);
+        ParameterizedRunner target = new ParameterizedRunner("target", 1);
+        Step<String> sourceStep = Step.of(source);
+        Step<String> targetStep = Step.of(target);
+        Step<Void> consumer = step("consumer");
+        job.addStep(sourceStep);
+        job.addStep(targetStep);
+        job.addStep(consumer, targetStep);
+        job.run();
+        events.clear();
+
+        check(job.invalidateChanged().isEmpty()).is(true);
+        target.parameter = 2;
+        check(targetStep.isStale()).is(true);
+        check(sourceStep.isStale()).is(false);
+
+        List<Step<?>> stale = job.invalidateChanged();
+        job.run();
+
+        check(stale).is(targetStep, consumer);
+        check(events).is("rollback consumer", "rollback target", "run target 2", "run consumer");
+        check(targetStep.isStale()).is(false);
+        check(targetStep.getResult()).is("target 2");
+    }
+
+    @Test
+    void invalidateStepThatDidNotRun() {
+        Step<Void> first = step("a");
+        Step<Void> second = step("b");
+        job.addStep(first);
+        job.addStep(second, first);
+
+        check(job.invalidate(first)).is(first, second);
+        check(events.isEmpty()).is(true);
+    }
+
+    @Test
+    void invalidateRejectsForeignStep() {
+        assertThrows(IllegalArgumentException.class, () -> job.invalidate(step("a")));
+    }
+
+    @Test
+    void runIsRejectedForStepsAddedAfterSuccess() {
+        job.addStep(step("a"));
+        job.run();
+        job.addStep(step("b"));
+        events.clear();
+
+        assertThrows(IllegalStateException.class, job::run);
+
+        check(events.isEmpty()).is(true);
+    }
+
+    @Test
+    void runIsRejectedAfterFailedRollback() {
+        Step<Void> first = new Step<>(() -> null, () -> {
+            throw new IllegalStateException("rollback failed");
+        }, null, null);
+        Step<Void> second = new Step<>(() -> {
+            events.add("run b");
+            throw new IllegalStateException("run failed");
+        }, null, null, null);
+        job.addStep(first);
+        job.addStep(second);
+        job.addStep(step("c"));
+        assertThrows(IllegalStateException.class, job::run);
+        assertThrows(IllegalStateException.class, job::rollback);
+        check(job.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+        events.clear();
+
+        assertThrows(IllegalStateException.class, job::run);
+
+        check(events.isEmpty()).is(true);
+        check(second.getStatus()).is(JobStatus.ERROR);
+    }
+
+    @Test
+    void journalRestoresInvalidatedSteps() throws IOException {
+        Path file = Files.createTempFile("job", ".journal");
+        Files.delete(file);
+        try {
+            try (MappedFileJournal journal = new MappedFileJournal(file)) {
+                Job original = new Job();
+                Step<Void> second = step("1");
+                original.addStep(step("0"));
+                original.addStep(second);
+                original.attachJournal(journal);
+                original.run();
+                original.invalidate(second);
+            }
+            events.clear();
+
+            try (MappedFileJournal journal = new MappedFileJournal(file)) {
+                Job restored = new Job();
+                restored.addStep(step("0"));
+                restored.addStep(step("1"));
+                restored.attachJournal(journal);
+                restored.run();
+
+                check(events).is("run 1");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Step<Void> step(String name) {
+        return new Step<>(() -> {
+            events.add("run " + name);
+            return null;
+        }, () -> events.add("rollback " + name), null, null);
+    }
+
+    private class ParameterizedRunner implements StepRunner<String> {
+
+        private final String name;
+        private volatile int parameter;
+
+        ParameterizedRunner(String name, int parameter) {
+            this.name = name;
+            this.parameter = parameter;
+        }
+
+        @Override
+        public String run() {
+            events.add("run " + name + " " + parameter);
+            return name + " " + parameter;
+        }
+
+        @Override
+        public Runnable rollback() {
+            return () -> events.add("rollback " + name);
+        }
+
+        @Override
+        public void status(JobStatus status) {
+        }
+
+        @Override
+        public Object fingerprint() {
+            return parameter;
+        }
+
+        @Override
+        public boolean validate() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class JobExecutorTest {
+
+    private ExecutorService workers = JobExecutor.platformThreads(4);
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        workers.shutdownNow();
+    }
+
+    @Test
+    void globalConcurrencyIsBounded() {
+        JobExecutor executor = new JobExecutor(workers, 2, 10, RejectionPolicy.ABORT);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[6];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(job(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                TestUtils.sleep(20);
+                running.decrementAndGet();
+            }), 0);
+        }
+
+        CompletableFuture.allOf(futures).join();
+
+        check(maxRunning.get()).is(2);
+        check(executor.getInFlight()).is(0);
+        check(executor.getQueueDepth()).is(0);
+    }
+
+    @Test
+    void higherPriorityRunsFirst() {
+        JobExecutor executor = new JobExecutor(workers, 1, 10, RejectionPolicy.ABORT);
+        CompletableFuture<Void> blocker = executor.submit(blockingJob(), 0);
+        CompletableFuture<Void> low = executor.submit(job(() -> events.add("low")), 1);
+        CompletableFuture<Void> high = executor.submit(job(() -> events.add("high")), 5);
+        check(executor.getQueueDepth()).is(2);
+
+        release.countDown();
+        CompletableFuture.allOf(blocker, low, high).join();
+
+        check(events).is("high", "low");
+    }
+
+    @Test
+    void tagLimitDoesNotBlockOtherJobs() {
+        JobExecutor executor = new JobExecutor(workers, 4, 10, RejectionPolicy.ABORT);
+        executor.setTagLimit("db", 1);
+        CompletableFuture<Void> first = executor.submit(blockingJob(), 0, "db");
+        CompletableFuture<Void> second = executor.submit(job(() -> events.add("db")), 0, "db");
+        CompletableFuture<Void> other = executor.submit(job(() -> events.add("other")), 0, "http");
+
+        other.join();
+        check(events).is("other");
+        check(executor.getInFlight("db")).is(1);
+        check(executor.getQueueDepth()).is(1);
+
+        release.countDown();
+        CompletableFuture.allOf(first, second).join();
+        check(events).is("other", "db");
+    }
+
+    @Test
+    void fullQueueRejects() {
+        JobExecutor executor = new JobExecutor(workers, 1, 1, RejectionPolicy.ABORT);
+        executor.submit(blockingJob(), 0);
+        executor.submit(job(() -> events.add("queued")), 0);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(job(() -> events.add("x")), 0));
+    }
+
+    @Test
+    void fullQueueRunsInCaller() {
+        JobExecutor executor = new JobExecutor(workers, 1, 0, RejectionPolicy.CALLER_RUNS);
+        executor.submit(blockingJob(), 0);
+        Thread caller = Thread.currentThread();
+        AtomicInteger callerRuns = new AtomicInteger();
+
+        executor.submit(job(() -> {
+            if (Thread.currentThread() == caller) {
+                callerRuns.incrementAndGet();
+            }
+        }), 0).join();
+
+        check(callerRuns.get()).is(1);
+    }
+
+    @Test
+    void callerRunsRespectsTagLimits() throws InterruptedException {
+        JobExecutor executor = new JobExecutor(workers, 4, 0, RejectionPolicy.CALLER_RUNS);
+        executor.setTagLimit("db", 1);
+        CompletableFuture<Void> first = executor.submit(blockingJob(), 0, "db");
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Thread submitter = new Thread(() -> executor.submit(job(() -> {
+            maxInFlight.set(executor.getInFlight("db"));
+            events.add("caller");
+        }), 0, "db").join());
+        submitter.start();
+
+        await().until(() -> submitter.getState() == Thread.State.WAITING);
+        check(events.isEmpty()).is(true);
+        check(executor.getInFlight("db")).is(1);
+
+        release.countDown();
+        submitter.join();
+        first.join();
+
+        check(events).is("caller");
+        check(maxInFlight.get()).is(1);
+        check(executor.getInFlight("db")).is(0);
+        check(executor.getInFlight()).is(0);
+    }
+
+    @Test
+    void fullQueueBlocksSubmitter() throws InterruptedException {
+        JobExecutor executor = new JobExecutor(workers, 1, 0, RejectionPolicy.BLOCK);
+        executor.submit(blockingJob(), 0);
+        Thread submitter = new Thread(() -> executor.submit(job(() -> events.add("blocked")), 0));
+        submitter.start();
+
+        await().until(() -> submitter.getState() == Thread.State.WAITING);
+        check(events.isEmpty()).is(true);
+
+        release.countDown();
+        submitter.join();
+        await().until(() -> events.size() == 1);
+    }
+
+    @Test
+    void failedJobCompletesExceptionally() {
+        JobExecutor executor = new JobExecutor(workers, 1, 1, RejectionPolicy.ABORT);
+        Job job = job(() -> {
+            throw new IllegalStateException("failure");
+        });
+
+        CompletableFuture<Void> future = executor.submit(job, 0);
+
+        check(future.handle((value, error) -> error).join() instanceof IllegalStateException).is(true);
+        check(job.getStatus()).is(JobStatus.ERROR);
+        check(executor.getInFlight()).is(0);
+    }
+
+    private Job blockingJob() {
+        return job(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private Job job(Runnable runnable) {
+        Job job = new Job();
+        job.addStep(Step.of(() -> {
+            runnable.run();
+            return null;
+        }));
+        return job;
+    }
+}
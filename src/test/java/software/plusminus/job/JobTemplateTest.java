@@ -0,0 +1,112 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.InvalidStep;
+import software.plusminus.job.steps.NoRollbackStep;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class JobTemplateTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private JobTemplate template = new JobTemplate();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void jobsShareStructureButNotState() {
+        int first = template.addStep(() -> events.add("first"), () -> events.add("rollback first"));
+        template.addStep(() -> events.add("second"), () -> events.add("rollback second"), first);
+
+        Job job = template.newJob();
+        Job other = template.newJob();
+        job.run();
+
+        check(template.size()).is(2);
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(other.getStatus()).is(JobStatus.READY);
+        check(events).is("first", "second");
+    }
+
+    @Test
+    void dependenciesAreKept() {
+        int first = template.addStep(() -> events.add("first"), () -> events.add("rollback first"));
+        int second = template.addStep(() -> events.add("second"), () -> events.add("rollback second"));
+        template.addStep(() -> events.add("third"), () -> events.add("rollback third"), first, second);
+        Job job = template.newJob();
+
+        job.run(executor);
+        events.clear();
+        job.rollback(executor, 2, FailurePolicy.STOP);
+
+        check(events.get(0)).is("rollback third");
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+    }
+
+    @Test
+    void changingOneJobKeepsTheSharedStructure() {
+        List<Step<?>> created = new CopyOnWriteArrayList<>();
+        template.add(job -> step(created, "first"));
+        template.add(job -> step(created, "second"), 0);
+        template.add(job -> step(created, "third"), 1);
+        Job job = template.newJob();
+        Job other = template.newJob();
+        Step<Boolean> replacement = Step.of(() -> events.add("replacement"));
+
+        job.replaceStep(created.get(2), replacement);
+        assertThrows(IllegalStateException.class, () -> job.removeStep(created.get(1)));
+        job.run();
+        other.run();
+
+        check(events).is("first", "second", "replacement", "first", "second", "third");
+        check(job.invalidate(created.get(0))).is(created.get(0), created.get(1), replacement);
+        check(other.invalidate(created.get(4))).is(created.get(4), created.get(5));
+    }
+
+    @Test
+    void runnersAreCreatedPerJob() {
+        template.addRunner(InvalidStep::new);
+        template.addRunner(NoRollbackStep::new);
+
+        Job job = template.newJob();
+        Job other = template.newJob();
+
+        check(job.getStatus()).is(JobStatus.INVALID);
+        check(other.getStatus()).is(JobStatus.INVALID);
+    }
+
+    @Test
+    void dependencyMustBeAnEarlierStep() {
+        template.addStep(() -> null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> template.addStep(() -> null, null, 1));
+    }
+
+    @Test
+    void templateCanGrowAfterInstantiation() {
+        template.addStep(() -> events.add("first"), null);
+        template.newJob();
+        template.addStep(() -> events.add("second"), null, 0);
+
+        template.newJob().run();
+
+        check(events).is("first", "second");
+    }
+
+    private Step<?> step(List<Step<?>> created, String name) {
+        Step<Boolean> step = Step.of(() -> events.add(name));
+        created.add(step);
+        return step;
+    }
+}
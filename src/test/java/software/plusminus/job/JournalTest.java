@@ -0,0 +1,145 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class JournalTest {
+
+    private Path file;
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private AtomicBoolean error = new AtomicBoolean(true);
+
+    JournalTest() throws IOException {
+        file = Files.createTempFile("job", ".journal");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void recordsSavedStatusesAndProgress() {
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+            assertThrows(IllegalStateException.class, job::run);
+
+            check(journal.read()).is(
+                    JournalRecord.status(0, JobStatus.SUCCESS),
+                    JournalRecord.progress(0),
+                    JournalRecord.status(1, JobStatus.ERROR));
+        }
+    }
+
+    @Test
+    void resumesRunAfterRestart() {
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+            assertThrows(IllegalStateException.class, job::run);
+        }
+        events.clear();
+        error.set(false);
+
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+            check(job.getStatus()).is(JobStatus.ERROR);
+
+            job.run();
+
+            check(job.getStatus()).is(JobStatus.SUCCESS);
+            check(events).is("run 1", "run 2");
+        }
+    }
+
+    @Test
+    void rollsBackAfterRestart() {
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+            assertThrows(IllegalStateException.class, job::run);
+        }
+        events.clear();
+
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+
+            job.rollback();
+
+            check(job.getStatus()).is(JobStatus.ERROR);
+            check(events).is("rollback 0");
+        }
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            Job job = newJob();
+            job.attachJournal(journal);
+
+            job.rollback();
+
+            check(events).is("rollback 0");
+        }
+    }
+
+    @Test
+    void appendsAcrossSegments() {
+        try (MappedFileJournal journal = new MappedFileJournal(file, 32, false)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(JournalRecord.progress(i));
+            }
+        }
+        try (MappedFileJournal journal = new MappedFileJournal(file, 32, true)) {
+            journal.append(JournalRecord.rollback(3));
+
+            List<JournalRecord> records = journal.read();
+
+            check(records.size()).is(11);
+            check(records.get(9)).is(JournalRecord.progress(9));
+            check(records.get(10)).is(JournalRecord.rollback(3));
+        }
+    }
+
+    @Test
+    void readsStatusCodesWrittenBeforeCancellationStatuses() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MappedFileJournal.HEADER_SIZE + 2 * MappedFileJournal.RECORD_SIZE)
+                .putInt(MappedFileJournal.MAGIC)
+                .putInt(1);
+        buffer.put((byte) (JournalRecordType.STATUS.ordinal() + 1)).put((byte) 9).putShort((short) 0).putInt(0);
+        buffer.put((byte) (JournalRecordType.STATUS.ordinal() + 1)).put((byte) 11).putShort((short) 0).putInt(1);
+        Files.write(file, buffer.array());
+
+        try (MappedFileJournal journal = new MappedFileJournal(file)) {
+            check(journal.read()).is(
+                    JournalRecord.status(0, JobStatus.ERROR),
+                    JournalRecord.status(1, JobStatus.ERROR_ROLLBACK));
+        }
+    }
+
+    private Job newJob() {
+        Job job = new Job();
+        for (int i = 0; i < 3; i++) {
+            int index = i;
+            job.addStep(new Step<>(() -> {
+                events.add("run " + index);
+                if (index == 1 && error.get()) {
+                    throw new IllegalStateException("Test error");
+                }
+                return null;
+            }, () -> events.add("rollback " + index), null, null));
+        }
+        return job;
+    }
+}
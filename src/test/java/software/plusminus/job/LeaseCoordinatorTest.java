@@ -0,0 +1,278 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class LeaseCoordinatorTest {
+
+    private Path file;
+    private FileLeaseStore store;
+    private List<LeaseCoordinator> coordinators = new ArrayList<>();
+
+    @BeforeEach
+    void createStore() throws IOException {
+        file = Files.createTempFile("plusminus-leases", ".tsv");
+        store = new FileLeaseStore(file);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        coordinators.forEach(LeaseCoordinator::close);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".lock"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+    }
+
+    @Test
+    void onlyOneNodeHoldsLease() {
+        LeaseCoordinator first = coordinator(store, "node-a", Duration.ofSeconds(10));
+        LeaseCoordinator second = coordinator(new FileLeaseStore(file), "node-b", Duration.ofSeconds(10));
+
+        Lease lease = first.claim("job-1", () -> { });
+
+        check(lease != null).is(true);
+        check(second.claim("job-1", () -> { })).isNull();
+        first.release(lease);
+        Lease next = second.claim("job-1", () -> { });
+        check(next.getOwner()).is("node-b");
+        check(next.getToken() > lease.getToken()).is(true);
+    }
+
+    @Test
+    void expiredLeaseIsHandedOverWithNewFencingToken() {
+        Lease crashed = store.tryAcquire("job-1", "node-a", Duration.ofMillis(100));
+        LeaseCoordinator survivor = coordinator(new FileLeaseStore(file), "node-b", Duration.ofSeconds(10));
+
+        check(survivor.claim("job-1", () -> { })).isNull();
+        await().until(() -> survivor.claim("job-1", () -> { }) != null);
+
+        Lease taken = survivor.getLease("job-1");
+        check(taken.getToken()).is(crashed.getToken() + 1);
+        check(store.isCurrent(crashed)).is(false);
+        check(store.isCurrent(taken)).is(true);
+        check(store.renew(Collections.singletonList(crashed), Duration.ofSeconds(1)).isEmpty()).is(true);
+    }
+
+    @Test
+    void interruptedWriteKeepsPreviousLeases() throws IOException {
+        Lease lease = store.tryAcquire("job-1", "node-a", Duration.ofSeconds(10));
+        Files.write(file.resolveSibling(file.getFileName() + ".tmp"), new byte[] {'j', 'o'});
+
+        check(new FileLeaseStore(file).tryAcquire("job-1", "node-b", Duration.ofSeconds(10))).isNull();
+        check(store.isCurrent(lease)).is(true);
+        check(store.tryAcquire("job-1", "node-a", Duration.ofSeconds(10)).getToken()).is(lease.getToken() + 1);
+    }
+
+    @Test
+    void isCurrentDoesNotRewriteLeases() throws IOException, InterruptedException {
+        Lease lease = store.tryAcquire("job-1", "node-a", Duration.ofSeconds(10));
+        BasicFileAttributes written = Files.readAttributes(file, BasicFileAttributes.class);
+        Thread.sleep(50);
+
+        check(store.isCurrent(lease)).is(true);
+
+        BasicFileAttributes read = Files.readAttributes(file, BasicFileAttributes.class);
+        check(read.fileKey()).is(written.fileKey());
+        check(read.lastModifiedTime()).is(written.lastModifiedTime());
+    }
+
+    @Test
+    void heartbeatKeepsLeaseAlive() throws InterruptedException {
+        LeaseCoordinator owner = coordinator(store, "node-a", Duration.ofMillis(300));
+        LeaseCoordinator other = coordinator(new FileLeaseStore(file), "node-b", Duration.ofMillis(300));
+        owner.claim("job-1", () -> { });
+
+        Thread.sleep(900);
+
+        check(other.claim("job-1", () -> { })).isNull();
+        check(owner.getHeldLeases()).is(1);
+    }
+
+    @Test
+    void renewalsAreBatched() {
+        CountingStore counting = new CountingStore(store);
+        LeaseCoordinator owner = coordinator(counting, "node-a", Duration.ofSeconds(10));
+        for (int i = 0; i < 100; i++) {
+            owner.claim("step-" + i, () -> { });
+        }
+
+        owner.heartbeat();
+
+        check(counting.renewals.get()).is(1);
+        check(owner.getHeldLeases()).is(100);
+    }
+
+    @Test
+    void lostLeaseCancelsJob() throws InterruptedException {
+        CountingStore failing = new CountingStore(store);
+        LeaseCoordinator owner = coordinator(failing, "node-a", Duration.ofSeconds(10));
+        CountDownLatch started = new CountDownLatch(1);
+        Job job = new Job();
+        job.addStep(Step.of(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", e);
+            }
+            return null;
+        }));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Thread node = new Thread(() -> {
+            try {
+                owner.run("job-1", job);
+            } catch (CancellationException e) {
+                cancelled.set(true);
+            }
+        });
+        node.start();
+        started.await();
+
+        failing.lose = true;
+        owner.heartbeat();
+        node.join(TimeUnit.SECONDS.toMillis(5));
+
+        check(cancelled.get()).is(true);
+        check(job.getStatus()).is(JobStatus.CANCELLED);
+        check(owner.getHeldLeases()).is(0);
+    }
+
+    @Test
+    void expiredOwnerCannotStartNextStepOrWriteJournal() {
+        CountingStore stalled = new CountingStore(store);
+        stalled.stalled = true;
+        LeaseCoordinator owner = coordinator(stalled, "node-a", Duration.ofMillis(300));
+        LeaseCoordinator other = coordinator(new FileLeaseStore(file), "node-b", Duration.ofSeconds(10));
+        AtomicInteger runs = new AtomicInteger();
+        Job job = new Job();
+        Step<Boolean> first = Step.of(() -> {
+            await().until(() -> other.claim("job-1", () -> { }) != null);
+            return true;
+        });
+        job.addStep(first);
+        job.addStep(Step.of(runs::incrementAndGet), first);
+        List<JournalRecord> records = new ArrayList<>();
+        job.attachJournal(new ListJournal(records));
+
+        try {
+            assertThrows(CancellationException.class, () -> owner.run("job-1", job));
+        } finally {
+            stalled.resumed.countDown();
+        }
+
+        check(runs.get()).is(0);
+        check(records.isEmpty()).is(true);
+        check(first.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void runSkipsJobOwnedByAnotherNode() {
+        store.tryAcquire("job-1", "node-a", Duration.ofSeconds(10));
+        LeaseCoordinator other = coordinator(new FileLeaseStore(file), "node-b", Duration.ofSeconds(10));
+        AtomicInteger runs = new AtomicInteger();
+        Job job = new Job();
+        job.addStep(Step.of(runs::incrementAndGet));
+
+        check(other.run("job-1", job)).is(false);
+        check(runs.get()).is(0);
+    }
+
+    @Test
+    void invalidKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> store.tryAcquire("a\tb", "node-a", Duration.ofSeconds(1)));
+    }
+
+    private LeaseCoordinator coordinator(LeaseStore leaseStore, String owner, Duration ttl) {
+        LeaseCoordinator coordinator = new LeaseCoordinator(leaseStore, owner, ttl);
+        coordinators.add(coordinator);
+        return coordinator;
+    }
+
+    private static final class CountingStore implements LeaseStore {
+
+        private final LeaseStore delegate;
+        private final AtomicInteger renewals = new AtomicInteger();
+        private final CountDownLatch resumed = new CountDownLatch(1);
+        private volatile boolean lose;
+        private volatile boolean stalled;
+
+        private CountingStore(LeaseStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Nullable
+        @Override
+        public Lease tryAcquire(String key, String owner, Duration ttl) {
+            return delegate.tryAcquire(key, owner, ttl);
+        }
+
+        @Override
+        public List<Lease> renew(Collection<Lease> leases, Duration ttl) {
+            renewals.incrementAndGet();
+            if (stalled) {
+                try {
+                    resumed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.emptyList();
+            }
+            return lose ? Collections.emptyList() : delegate.renew(leases, ttl);
+        }
+
+        @Override
+        public void release(Lease lease) {
+            delegate.release(lease);
+        }
+
+        @Override
+        public boolean isCurrent(Lease lease) {
+            return delegate.isCurrent(lease);
+        }
+    }
+
+    private static final class ListJournal implements JobJournal {
+
+        private final List<JournalRecord> records;
+
+        private ListJournal(List<JournalRecord> records) {
+            this.records = records;
+        }
+
+        @Override
+        public void append(JournalRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public List<JournalRecord> read() {
+            return new ArrayList<>(records);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
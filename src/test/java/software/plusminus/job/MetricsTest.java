@@ -0,0 +1,102 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import static software.plusminus.check.Checks.check;
+
+class MetricsTest {
+
+    private JobMetrics metrics = new JobMetrics();
+    private Job job = new Job();
+
+    @Test
+    void recordsStepAndJobLatencies() {
+        Step<Void> first = named("first", null);
+        Step<Void> second = named("second", () -> { });
+        job.addStep(first);
+        job.addStep(second);
+        job.setMetricsSink(metrics);
+
+        job.run();
+        job.rollback();
+
+        check(metrics.getStepRunLatency("first").getCount()).is(1L);
+        check(metrics.getStepRunLatency("second").getCount()).is(1L);
+        check(metrics.getStepRollbackLatency("first").getCount()).is(1L);
+        check(metrics.getJobRunLatency().getCount()).is(1L);
+        check(metrics.getJobRollbackLatency().getCount()).is(1L);
+        check(metrics.getCount(JobStatus.SUCCESS)).is(2L);
+        check(metrics.getCount(JobStatus.NO_ROLLBACK)).is(1L);
+        check(metrics.getCount(JobStatus.SUCCESS_ROLLBACK)).is(1L);
+    }
+
+    @Test
+    void recordsTransitionTimes() {
+        Step<Void> step = named("step", null);
+        job.addStep(step);
+        job.setMetricsSink(metrics);
+
+        job.run();
+
+        long running = step.getTransitionTime(JobStatus.RUNNING);
+        check(running > 0).is(true);
+        check(step.getTransitionTime(JobStatus.SUCCESS) >= running).is(true);
+        check(step.getTransitionTime(JobStatus.ERROR)).is(0L);
+    }
+
+    @Test
+    void noMetricsWithoutSink() {
+        Step<Void> step = named("step", null);
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getTransitionTime(JobStatus.RUNNING)).is(0L);
+    }
+
+    @Test
+    void failedStepIsCounted() {
+        Step<Void> step = Step.of(() -> {
+            throw new IllegalStateException();
+        });
+        job.addStep(step);
+        job.setMetricsSink(metrics);
+
+        try {
+            job.run();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        check(metrics.getCount(JobStatus.ERROR)).is(1L);
+        check(metrics.getStepRunLatency("step-0").getCount()).is(1L);
+    }
+
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        check(histogram.getCount()).is(1000L);
+        check(histogram.getMax()).is(1_000_000L);
+        long median = histogram.percentile(50);
+        check(median >= 500_000 && median <= 500_000 * 9 / 8).is(true);
+        check(histogram.percentile(100)).is(1_000_000L);
+    }
+
+    @Test
+    void histogramBucketsCoverAllValues() {
+        for (long value : new long[] {0, 7, 8, 15, 16, 1000, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            check(LatencyHistogram.upperBound(index) >= value).is(true);
+        }
+    }
+
+    private Step<Void> named(String name, Runnable rollback) {
+        Step<Void> step = new Step<>(() -> null, rollback, null, null);
+        step.setName(name);
+        return step;
+    }
+}
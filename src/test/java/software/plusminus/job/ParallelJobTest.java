@@ -0,0 +1,192 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class ParallelJobTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private Job job = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentStepsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Step<Boolean> first = Step.of(() -> TestUtils.awaitOther(bothStarted));
+        Step<Boolean> second = Step.of(() -> TestUtils.awaitOther(bothStarted));
+        job.addStep(first);
+        job.addStep(second);
+
+        job.run(executor);
+
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(first.getResult()).is(true);
+        check(second.getResult()).is(true);
+    }
+
+    @Test
+    void dependentStepRunsAfterDependencies() {
+        Step<Void> first = step("first");
+        Step<Void> second = step("second");
+        Step<Void> third = step("third");
+        job.addStep(first);
+        job.addStep(second);
+        job.addStep(third, first, second);
+
+        job.run(executor);
+
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(events.get(2)).is("run third");
+    }
+
+    @Test
+    void errorStopsScheduling() {
+        Step<Void> failing = Step.of(() -> {
+            throw new IllegalStateException("Test error");
+        });
+        Step<Void> dependent = step("dependent");
+        job.addStep(failing);
+        job.addStep(dependent, failing);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> job.run(executor));
+
+        check(exception.getMessage()).is("Test error");
+        check(job.getStatus()).is(JobStatus.ERROR);
+        check(failing.getStatus()).is(JobStatus.ERROR);
+        check(dependent.getStatus()).is(JobStatus.READY);
+        check(events).isEmpty();
+    }
+
+    @Test
+    void rollbackInReverseTopologicalOrder() {
+        Step<Void> first = step("first");
+        Step<Void> second = step("second");
+        Step<Void> third = step("third");
+        job.addStep(third);
+        job.addStep(second, third);
+        job.addStep(first, second);
+        job.run(executor);
+        events.clear();
+
+        job.rollback();
+
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(events).is("rollback first", "rollback second", "rollback third");
+    }
+
+    @Test
+    void parallelRollbackIsBounded() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            job.addStep(new Step<>(() -> null, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                TestUtils.sleep(5);
+                running.decrementAndGet();
+            }, null, null));
+        }
+        job.run();
+
+        job.rollback(executor, 2, FailurePolicy.STOP);
+
+        check(job.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(maxRunning.get()).is(2);
+    }
+
+    @Test
+    void parallelRollbackContinuesAfterFailure() {
+        Step<Void> failing = new Step<>(() -> null, () -> {
+            throw new IllegalStateException("Test error");
+        }, null, null);
+        Step<Void> first = step("first");
+        Step<Void> noRollback = Step.of(() -> null);
+        job.addStep(first);
+        job.addStep(failing);
+        job.addStep(noRollback);
+        job.run();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> job.rollback(executor, 1, FailurePolicy.CONTINUE));
+
+        check(exception.getMessage()).is("Test error");
+        check(job.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+        check(first.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(failing.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+        check(noRollback.getStatus()).is(JobStatus.NO_ROLLBACK);
+    }
+
+    @Test
+    void parallelRollbackStopsAfterFailure() {
+        Step<Void> failing = new Step<>(() -> null, () -> {
+            throw new IllegalStateException("Test error");
+        }, null, null);
+        Step<Void> first = step("first");
+        job.addStep(first);
+        job.addStep(failing, first);
+        job.run();
+
+        assertThrows(IllegalStateException.class, () -> job.rollback(executor, 4, FailurePolicy.STOP));
+
+        check(job.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+        check(first.getStatus()).is(JobStatus.SUCCESS);
+        check(events).is("run first");
+    }
+
+    @Test
+    void parallelRollbackRespectsDependencies() {
+        Step<Void> first = step("first");
+        Step<Void> second = step("second");
+        Step<Void> noRollback = Step.of(() -> null);
+        job.addStep(first);
+        job.addStep(second, first);
+        job.addStep(noRollback, second);
+        job.run();
+        events.clear();
+
+        job.rollback(executor, 4, FailurePolicy.STOP);
+
+        check(job.getStatus()).is(JobStatus.PARTIAL_ROLLBACK);
+        check(events).is("rollback second", "rollback first");
+    }
+
+    @Test
+    void dependencyMustBelongToJob() {
+        assertThrows(IllegalArgumentException.class, () -> job.addStep(step("first"), step("second")));
+    }
+
+    @Test
+    void cannotRemoveStepWithDependents() {
+        Step<Void> first = step("first");
+        job.addStep(first);
+        job.addStep(step("second"), first);
+
+        assertThrows(IllegalStateException.class, () -> job.removeStep(first));
+        check(job.getStatus()).is(JobStatus.READY);
+        check(first.getStatus()).is(JobStatus.READY);
+        job.run();
+        check(first.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    private Step<Void> step(String name) {
+        return new Step<>(() -> {
+            events.add("run " + name);
+            return null;
+        }, () -> events.add("rollback " + name), null, null);
+    }
+}
@@ -0,0 +1,198 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class PipeTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+    private Pipe<Integer> pipe = new Pipe<>(8);
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private Job job = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void consumerStartsBeforeProducerFinishes() {
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        Step<Boolean> producer = Step.of(() -> {
+            pipe.send(0);
+            boolean concurrent = await(firstReceived);
+            for (int i = 1; i < 1000; i++) {
+                pipe.send(i);
+            }
+            return concurrent;
+        });
+        Step<Long> consumer = Step.of(() -> {
+            long sum = 0;
+            for (Integer item : pipe) {
+                firstReceived.countDown();
+                sum += item;
+            }
+            return sum;
+        });
+        job.addStep(producer);
+        job.addStep(consumer, producer);
+        job.addPipe(producer, consumer, pipe);
+
+        job.run(executor);
+
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(producer.getResult()).is(true);
+        check(consumer.getResult()).is(499_500L);
+    }
+
+    @Test
+    void producerFailureFailsConsumer() {
+        Step<Void> producer = Step.of(() -> {
+            pipe.send(1);
+            throw new IllegalStateException("producer failed");
+        });
+        Step<Integer> consumer = Step.of(() -> {
+            int count = 0;
+            for (Integer item : pipe) {
+                count += item;
+            }
+            return count;
+        });
+        job.addStep(producer);
+        job.addStep(consumer);
+        job.addPipe(producer, consumer, pipe);
+
+        assertThrows(IllegalStateException.class, () -> job.run(executor));
+
+        check(producer.getStatus()).is(JobStatus.ERROR);
+        check(consumer.getStatus()).is(JobStatus.ERROR);
+    }
+
+    @Test
+    void consumerFailureUnblocksProducer() {
+        Step<Void> producer = Step.of(() -> {
+            for (int i = 0; i < 100; i++) {
+                pipe.send(i);
+            }
+            return null;
+        });
+        Step<Void> consumer = Step.of(() -> {
+            pipe.receive();
+            throw new IllegalStateException("consumer failed");
+        });
+        job.addStep(producer);
+        job.addStep(consumer);
+        job.addPipe(producer, consumer, pipe);
+
+        assertThrows(IllegalStateException.class, () -> job.run(executor));
+
+        check(producer.getStatus()).is(JobStatus.ERROR);
+        check(consumer.getStatus()).is(JobStatus.ERROR);
+    }
+
+    @Test
+    void rerunAfterConsumerFailureRerunsProducer() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        Step<Void> producer = new Step<>(() -> {
+            pipe.send(1);
+            return null;
+        }, () -> events.add("rollback producer"), null, null);
+        Step<Void> consumer = Step.of(() -> {
+            pipe.forEach(item -> events.add("received " + item));
+            if (fail.get()) {
+                throw new IllegalStateException("consumer failed");
+            }
+            return null;
+        });
+        job.addStep(producer);
+        job.addStep(consumer);
+        job.addPipe(producer, consumer, pipe);
+        assertThrows(IllegalStateException.class, () -> job.run(executor));
+        check(producer.getStatus()).is(JobStatus.SUCCESS);
+        check(consumer.getStatus()).is(JobStatus.ERROR);
+        fail.set(false);
+
+        job.run(executor);
+
+        check(events).is("received 1", "rollback producer", "received 1");
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void sequentialRunIsNotAllowed() {
+        Step<Void> producer = Step.of(() -> null);
+        Step<Void> consumer = Step.of(() -> null);
+        job.addStep(producer);
+        job.addStep(consumer);
+        job.addPipe(producer, consumer, pipe);
+
+        assertThrows(IllegalStateException.class, job::run);
+    }
+
+    @Test
+    void executorWithoutThreadForEachPipedStepIsRejected() {
+        ExecutorService singleThread = Executors.newFixedThreadPool(1);
+        try {
+            Step<Void> producer = Step.of(() -> {
+                pipe.send(1);
+                return null;
+            });
+            Step<Void> consumer = Step.of(() -> {
+                pipe.forEach(item -> events.add("received " + item));
+                return null;
+            });
+            job.addStep(producer);
+            job.addStep(consumer);
+            job.addPipe(producer, consumer, pipe);
+
+            assertThrows(IllegalStateException.class, () -> job.run(singleThread));
+
+            check(producer.getStatus()).is(JobStatus.READY);
+            check(consumer.getStatus()).is(JobStatus.READY);
+            job.run(executor);
+            check(events).is("received 1");
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void consumerIsRolledBackFirst() {
+        Step<Void> producer = new Step<>(() -> {
+            pipe.send(1);
+            return null;
+        }, () -> events.add("rollback producer"), null, null);
+        Step<Void> consumer = new Step<>(() -> {
+            pipe.forEach(item -> events.add("received " + item));
+            return null;
+        }, () -> events.add("rollback consumer"), null, null);
+        job.addStep(producer);
+        job.addStep(consumer);
+        job.addPipe(producer, consumer, pipe);
+        job.run(executor);
+
+        job.rollback(executor, 2, FailurePolicy.STOP);
+
+        check(events).is("received 1", "rollback consumer", "rollback producer");
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
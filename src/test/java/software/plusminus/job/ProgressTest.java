@@ -0,0 +1,146 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class ProgressTest {
+
+    private Progress progress = new Progress();
+
+    @Test
+    void emptyProgress() {
+        check(progress.isEmpty()).is(true);
+        check(list().isEmpty()).is(true);
+        assertThrows(NoSuchElementException.class, progress::last);
+    }
+
+    @Test
+    void keepsCompletionOrder() {
+        Step<Void> first = step();
+        Step<Void> second = step();
+        Step<Void> third = step();
+
+        progress.add(second);
+        progress.add(third);
+        progress.add(first);
+
+        check(list()).is(second, third, first);
+        check(progress.last()).is(first);
+        check(progress.contains(third)).is(true);
+        check(progress.contains(step())).is(false);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        List<Step<?>> steps = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Step<Void> step = step();
+            steps.add(step);
+            progress.add(step);
+        }
+
+        check(list()).is(steps);
+        check(progress.last()).is(steps.get(99));
+    }
+
+    @Test
+    void removesLastAndMiddleSteps() {
+        Step<Void> first = step();
+        Step<Void> second = step();
+        Step<Void> third = step();
+        progress.add(first);
+        progress.add(second);
+        progress.add(third);
+
+        progress.remove(second);
+
+        check(list()).is(first, third);
+        check(progress.contains(second)).is(false);
+        check(progress.last()).is(third);
+
+        progress.remove(third);
+
+        check(progress.last()).is(first);
+        progress.remove(first);
+        check(progress.isEmpty()).is(true);
+    }
+
+    @Test
+    void compactsHolesLeftByRemovedSteps() {
+        List<Step<?>> steps = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Step<Void> step = step();
+            steps.add(step);
+            progress.add(step);
+        }
+        Step<?> last = steps.get(99);
+
+        for (int i = 0; i < 98; i += 2) {
+            progress.remove(steps.get(i));
+            progress.remove(steps.get(i + 1));
+        }
+
+        check(list()).is(steps.get(98), last);
+        check(last.getProgressIndex() < 20).is(true);
+        check(progress.contains(steps.get(98))).is(true);
+        check(progress.contains(steps.get(0))).is(false);
+        check(progress.last()).is(last);
+    }
+
+    @Test
+    void removingUnknownStepIsIgnored() {
+        Step<Void> first = step();
+        progress.add(first);
+
+        progress.remove(step());
+
+        check(list()).is(first);
+    }
+
+    @Test
+    void restoredStepIsAppendedAgain() {
+        Step<Void> first = step();
+        Step<Void> second = step();
+        progress.add(first);
+        progress.add(second);
+        progress.remove(first);
+
+        progress.add(first);
+
+        check(list()).is(second, first);
+        check(progress.last()).is(first);
+        check(progress.contains(first)).is(true);
+    }
+
+    @Test
+    void iteratorIsSnapshot() {
+        Step<Void> first = step();
+        Step<Void> second = step();
+        progress.add(first);
+        List<Step<?>> iterated = new ArrayList<>();
+
+        for (Step<?> step : progress) {
+            iterated.add(step);
+            progress.add(second);
+        }
+
+        check(iterated).is(first);
+        check(list()).is(first, second);
+    }
+
+    private List<Step<?>> list() {
+        List<Step<?>> steps = new ArrayList<>();
+        progress.forEach(steps::add);
+        return steps;
+    }
+
+    private static Step<Void> step() {
+        return Step.of(() -> null);
+    }
+}
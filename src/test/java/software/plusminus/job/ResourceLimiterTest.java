@@ -0,0 +1,213 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class ResourceLimiterTest {
+
+    private ResourceLimiter limiter = new ResourceLimiter();
+    private Consumer<Job> limited = job -> job.setResourceLimiter(limiter);
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+    private AtomicInteger running = new AtomicInteger();
+    private AtomicInteger maxRunning = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void limitsConcurrencyAcrossJobs() throws Exception {
+        limiter.setConcurrency("db", 2);
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Job job = TestUtils.job(limited, trackedStep("db"));
+            jobs.add(job);
+            runs.add(job.runAsync(executor));
+        }
+        CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        check(maxRunning.get() <= 2).is(true);
+        check(maxRunning.get() > 0).is(true);
+        jobs.forEach(job -> check(job.getStatus()).is(JobStatus.SUCCESS));
+        check(limiter.getInUse("db")).is(0);
+    }
+
+    @Test
+    void waitingStepDoesNotHoldThread() throws Exception {
+        executor.shutdownNow();
+        executor = Executors.newFixedThreadPool(2);
+        limiter.setConcurrency("api", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Step<Void> holder = Step.of(() -> {
+            started.countDown();
+            TestUtils.awaitLatch(release);
+            return null;
+        });
+        holder.setResources("api");
+        Step<Void> waiting = Step.of(() -> null);
+        waiting.setResources("api");
+        Job holderJob = TestUtils.job(limited, holder);
+        Job waitingJob = TestUtils.job(limited, waiting);
+
+        CompletableFuture<Void> holderRun = holderJob.runAsync(executor);
+        started.await();
+        CompletableFuture<Void> waitingRun = waitingJob.runAsync(executor);
+        await().until(() -> limiter.getWaiting() == 1);
+        Job free = TestUtils.job(limited, Step.of(() -> null));
+        free.runAsync(executor).get(5, TimeUnit.SECONDS);
+
+        check(waiting.getStatus()).is(JobStatus.WAITING);
+        check(free.getStatus()).is(JobStatus.SUCCESS);
+
+        release.countDown();
+        CompletableFuture.allOf(holderRun, waitingRun).get(5, TimeUnit.SECONDS);
+        check(waiting.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void enforcesRateAndReportsThrottling() {
+        limiter.setRate("api", 20, 1);
+        JobMetrics metrics = new JobMetrics();
+        Job job = new Job();
+        job.setResourceLimiter(limiter);
+        job.setMetricsSink(metrics);
+        for (int i = 0; i < 5; i++) {
+            Step<Void> step = Step.of(() -> null);
+            step.setName("call");
+            step.setResources("api");
+            job.addStep(step);
+        }
+        long started = System.nanoTime();
+
+        job.run(executor);
+
+        check(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(150)).is(true);
+        LatencyHistogram throttle = metrics.getStepThrottleLatency("call");
+        check(throttle.getCount()).is(5L);
+        check(throttle.getMax() >= TimeUnit.MILLISECONDS.toNanos(100)).is(true);
+    }
+
+    @Test
+    void cancelWhileWaitingForPermit() throws Exception {
+        limiter.setConcurrency("api", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Step<Void> holder = Step.of(() -> {
+            started.countDown();
+            TestUtils.awaitLatch(release);
+            return null;
+        });
+        holder.setResources("api");
+        Step<Void> waiting = Step.of(() -> null);
+        waiting.setResources("api");
+        Job holderJob = TestUtils.job(limited, holder);
+        Job waitingJob = TestUtils.job(limited, waiting);
+        CompletableFuture<Void> holderRun = holderJob.runAsync(executor);
+        started.await();
+        CompletableFuture<Void> waitingRun = waitingJob.runAsync(executor);
+        await().until(() -> limiter.getWaiting() == 1);
+
+        waitingJob.cancel();
+
+        assertThrows(CancellationException.class, () -> Futures.join(waitingRun));
+        check(waiting.getStatus()).is(JobStatus.CANCELLED);
+        release.countDown();
+        holderRun.get(5, TimeUnit.SECONDS);
+        await().until(() -> limiter.getWaiting() == 0);
+        check(limiter.getInUse("api")).is(0);
+    }
+
+    @Test
+    void sequentialRunReleasesPermits() {
+        limiter.setConcurrency("db", 1);
+        Job job = TestUtils.job(limited, trackedStep("db"), trackedStep("db"));
+
+        job.run();
+
+        check(job.getStatus()).is(JobStatus.SUCCESS);
+        check(limiter.getInUse("db")).is(0);
+    }
+
+    @Test
+    void grantsPermitsInArrivalOrder() {
+        limiter.setConcurrency("a", 1);
+        limiter.setConcurrency("b", 1);
+        CompletableFuture<Void> holdsA = limiter.acquire(Collections.singletonList("a"));
+        CompletableFuture<Void> holdsB = limiter.acquire(Collections.singletonList("b"));
+        CompletableFuture<Void> needsBoth = limiter.acquire(Arrays.asList("a", "b"));
+        CompletableFuture<Void> needsA = limiter.acquire(Collections.singletonList("a"));
+
+        limiter.release(holdsA);
+
+        check(needsBoth.isDone()).is(false);
+        check(needsA.isDone()).is(false);
+
+        limiter.release(holdsB);
+
+        check(needsBoth.isDone()).is(true);
+        check(needsA.isDone()).is(false);
+
+        limiter.release(needsBoth);
+
+        check(needsA.isDone()).is(true);
+        limiter.release(needsA);
+        check(limiter.getInUse("a")).is(0);
+        check(limiter.getInUse("b")).is(0);
+    }
+
+    @Test
+    void concurrencyLimitIgnoresPermitsTakenBeforeIt() {
+        limiter.setRate("db", 1000, 10);
+        CompletableFuture<Void> before = limiter.acquire(Collections.singletonList("db"));
+        limiter.setConcurrency("db", 1);
+
+        CompletableFuture<Void> after = limiter.acquire(Collections.singletonList("db"));
+
+        check(before.isDone()).is(true);
+        check(after.isDone()).is(true);
+        check(limiter.getInUse("db")).is(1);
+        limiter.release(before);
+        check(limiter.getInUse("db")).is(1);
+        limiter.release(after);
+        check(limiter.getInUse("db")).is(0);
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> limiter.setConcurrency("db", 0));
+        assertThrows(IllegalArgumentException.class, () -> limiter.setRate("api", 0, 1));
+    }
+
+    private Step<Void> trackedStep(String resource) {
+        Step<Void> step = Step.of(() -> {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            TestUtils.sleep(20);
+            running.decrementAndGet();
+            return null;
+        });
+        step.setResources(resource);
+        return step;
+    }
+}
@@ -0,0 +1,244 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.TestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class ResultCacheTest {
+
+    private ResultCache cache = new ResultCache(100);
+    private Consumer<Job> cached = job -> job.setResultCache(cache);
+    private AtomicInteger runs = new AtomicInteger();
+    private AtomicInteger rollbacks = new AtomicInteger();
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesResultAcrossJobs() {
+        Step<String> first = cachedStep("reference");
+        Step<String> second = cachedStep("reference");
+
+        TestUtils.job(cached, first).run();
+        TestUtils.job(cached, second).run();
+
+        check(runs.get()).is(1);
+        check(second.getResult()).is("reference 1");
+        check(second.getStatus()).is(JobStatus.SUCCESS);
+        check(first.isCacheHit()).is(false);
+        check(second.isCacheHit()).is(true);
+        check(cache.getHits()).is(1L);
+        check(cache.getMisses()).is(1L);
+    }
+
+    @Test
+    void joinsInFlightComputation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Step<String> origin = new Step<>(() -> {
+            runs.incrementAndGet();
+            started.countDown();
+            TestUtils.awaitLatch(release);
+            return "shared";
+        }, null, null, null);
+        origin.setIdempotencyKey("key");
+        Step<String> joiner = cachedStep("key");
+
+        CompletableFuture<Void> originRun = TestUtils.job(cached, origin).runAsync(executor);
+        started.await();
+        CompletableFuture<Void> joinerRun = TestUtils.job(cached, joiner).runAsync(executor);
+        await().until(() -> joiner.getStatus() == JobStatus.RUNNING);
+        check(runs.get()).is(1);
+        release.countDown();
+        CompletableFuture.allOf(originRun, joinerRun).get(5, TimeUnit.SECONDS);
+
+        check(runs.get()).is(1);
+        check(joiner.getResult()).is("shared");
+        check(joiner.isCacheHit()).is(true);
+    }
+
+    @Test
+    void inFlightHitDoesNotHoldPoolThread() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch independentRan = new CountDownLatch(1);
+        Step<String> origin = new Step<>(() -> {
+            started.countDown();
+            TestUtils.awaitLatch(release);
+            return "shared";
+        }, null, null, null);
+        origin.setIdempotencyKey("key");
+        Step<String> joiner = cachedStep("key");
+        Job joinerJob = TestUtils.job(cached, joiner);
+        joinerJob.addStep(Step.of(() -> {
+            independentRan.countDown();
+            return null;
+        }));
+        try {
+            CompletableFuture<Void> originRun = TestUtils.job(cached, origin).runAsync(pool);
+            started.await();
+            CompletableFuture<Void> joinerRun = joinerJob.runAsync(pool);
+
+            check(independentRan.await(5, TimeUnit.SECONDS)).is(true);
+            release.countDown();
+            CompletableFuture.allOf(originRun, joinerRun).get(5, TimeUnit.SECONDS);
+
+            check(joiner.getResult()).is("shared");
+            check(runs.get()).is(0);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void doesNotEvictInFlightComputations() {
+        cache = new ResultCache(1);
+        ResultCache.Claim first = cache.claim("a");
+        ResultCache.Claim second = cache.claim("b");
+        ResultCache.Claim third = cache.claim("c");
+
+        check(cache.size()).is(3);
+        check(cache.claim("a").isHit()).is(true);
+        check(cache.claim("a").getFuture() == first.getFuture()).is(true);
+
+        first.complete("a");
+        second.complete("b");
+        third.complete("c");
+
+        check(cache.size()).is(1);
+        check(cache.contains("c")).is(true);
+        check(cache.getEvictions()).is(2L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        cache = new ResultCache(2);
+        TestUtils.job(cached, cachedStep("a")).run();
+        TestUtils.job(cached, cachedStep("b")).run();
+        TestUtils.job(cached, cachedStep("a")).run();
+        TestUtils.job(cached, cachedStep("c")).run();
+
+        check(cache.size()).is(2);
+        check(cache.contains("a")).is(true);
+        check(cache.contains("b")).is(false);
+        check(cache.getEvictions()).is(1L);
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        cache = new ResultCache(10, Duration.ofMillis(50));
+        TestUtils.job(cached, cachedStep("key")).run();
+        await().until(() -> !cache.contains("key"));
+
+        TestUtils.job(cached, cachedStep("key")).run();
+
+        check(runs.get()).is(2);
+        check(cache.getMisses()).is(2L);
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        Step<String> failing = new Step<>(() -> {
+            runs.incrementAndGet();
+            if (fail.get()) {
+                throw new IllegalStateException("failed");
+            }
+            return "value";
+        }, null, null, null);
+        failing.setIdempotencyKey("key");
+        assertThrows(IllegalStateException.class, TestUtils.job(cached, failing)::run);
+        fail.set(false);
+
+        Step<String> retried = cachedStep("key");
+        TestUtils.job(cached, retried).run();
+
+        check(runs.get()).is(2);
+        check(retried.isCacheHit()).is(false);
+    }
+
+    @Test
+    void originOwnsCompensation() {
+        Step<String> origin = cachedStep("resource");
+        Step<String> hit = cachedStep("resource");
+        Job originJob = TestUtils.job(cached, origin);
+        Job hitJob = TestUtils.job(cached, hit);
+        originJob.run();
+        hitJob.run();
+
+        hitJob.rollback();
+
+        check(hit.getStatus()).is(JobStatus.NO_ROLLBACK);
+        check(rollbacks.get()).is(0);
+        check(cache.contains("resource")).is(true);
+
+        originJob.rollback();
+
+        check(origin.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(rollbacks.get()).is(1);
+        check(cache.contains("resource")).is(false);
+    }
+
+    @Test
+    void usesRunnerIdempotencyKey() {
+        TestUtils.job(cached, Step.of(new KeyedRunner())).run();
+        Step<Integer> second = Step.of(new KeyedRunner());
+        TestUtils.job(cached, second).run();
+
+        check(runs.get()).is(1);
+        check(second.isCacheHit()).is(true);
+    }
+
+    private Step<String> cachedStep(String key) {
+        Step<String> step = new Step<>(() -> key + " " + runs.incrementAndGet(), rollbacks::incrementAndGet,
+                null, null);
+        step.setIdempotencyKey(key);
+        return step;
+    }
+
+    private class KeyedRunner implements StepRunner<Integer> {
+
+        @Override
+        public Integer run() {
+            return runs.incrementAndGet();
+        }
+
+        @Override
+        public Runnable rollback() {
+            return null;
+        }
+
+        @Override
+        public void status(JobStatus status) {
+        }
+
+        @Override
+        public Object idempotencyKey() {
+            return "runner";
+        }
+
+        @Override
+        public boolean validate() {
+            return true;
+        }
+    }
+}
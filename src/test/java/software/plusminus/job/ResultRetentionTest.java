@@ -0,0 +1,152 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class ResultRetentionTest {
+
+    private Job job = new Job();
+
+    @Test
+    void keepIsDefault() {
+        Step<byte[]> step = Step.of(() -> new byte[1000]);
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getResult().length).is(1000);
+        check(step.getRetainedBytes() >= 1000).is(true);
+        check(job.getRetainedResultBytes()).is(step.getRetainedBytes());
+    }
+
+    @Test
+    void discardReleasesResultAfterDependents() {
+        Step<byte[]> source = Step.of(() -> new byte[1000]);
+        source.setResultRetention(ResultRetention.DISCARD);
+        Step<Integer> first = Step.of(() -> source.getResult().length);
+        Step<Integer> second = Step.of(() -> source.getResult().length + 1);
+        job.addStep(source);
+        job.addStep(first, source);
+        job.addStep(second, source);
+        Step<Boolean> last = Step.of(() -> source.getResult() == null);
+        job.addStep(last, second);
+
+        job.run();
+
+        check(last.getResult()).is(true);
+        check(first.getResult()).is(1000);
+        check(second.getResult()).is(1001);
+        check(source.getResult()).isNull();
+        check(source.getRetainedBytes()).is(0L);
+    }
+
+    @Test
+    void discardKeepsResultWithoutDependents() {
+        job.setResultRetention(ResultRetention.DISCARD);
+        Step<String> step = Step.of(() -> "result");
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getResult()).is("result");
+    }
+
+    @Test
+    void weakReferenceIsNotRetainedAfterCollection() {
+        Step<Object> step = Step.of(Object::new);
+        step.setResultRetention(ResultRetention.WEAK);
+        job.addStep(step);
+
+        job.run();
+        for (int i = 0; i < 10 && step.getResult() != null; i++) {
+            System.gc();
+        }
+
+        check(step.getResult()).isNull();
+        check(step.getRetainedBytes()).is(0L);
+    }
+
+    @Test
+    void spilledResultIsLoadedLazily() {
+        job.setResultRetention(ResultRetention.SPILL);
+        Step<List<String>> step = Step.of(() -> new ArrayList<>(Arrays.asList("a", "b", "c")));
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getRetainedBytes()).is(0L);
+        check(step.getSpilledBytes() > 0).is(true);
+        check(job.getSpilledResultBytes()).is(step.getSpilledBytes());
+        check(step.getResult()).is(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    void closingJobDeletesSpilledFiles() throws IOException {
+        Set<Path> before = spillFiles();
+        job.setResultRetention(ResultRetention.SPILL);
+        Step<String> step = Step.of(() -> "spilled");
+        job.addStep(step);
+        job.run();
+        Path file = newSpillFile(before);
+
+        job.close();
+
+        check(Files.exists(file)).is(false);
+        check(step.getSpilledBytes()).is(0L);
+        check(step.getResult()).isNull();
+        check(step.getStatus()).is(JobStatus.SUCCESS);
+    }
+
+    @Test
+    void spillFileOfCollectedResultIsDeleted() throws IOException {
+        Set<Path> before = spillFiles();
+        ResultHolder.of("collected", ResultRetention.SPILL);
+        Path file = newSpillFile(before);
+        for (int i = 0; i < 10 && Files.exists(file); i++) {
+            System.gc();
+            ResultHolder.of("trigger", ResultRetention.SPILL).release();
+        }
+
+        check(Files.exists(file)).is(false);
+    }
+
+    @Test
+    void notSerializableResultCannotBeSpilled() {
+        Step<Object> step = Step.of(Object::new);
+        step.setResultRetention(ResultRetention.SPILL);
+        job.addStep(step);
+
+        assertThrows(RuntimeException.class, job::run);
+
+        check(step.getStatus()).is(JobStatus.ERROR);
+    }
+
+    private static Path newSpillFile(Set<Path> before) throws IOException {
+        Set<Path> files = spillFiles();
+        files.removeAll(before);
+        check(files.size()).is(1);
+        return files.iterator().next();
+    }
+
+    private static Set<Path> spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith("plusminus-job-") && name.endsWith(".result");
+            }).collect(Collectors.toSet());
+        }
+    }
+}
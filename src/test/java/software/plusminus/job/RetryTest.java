@@ -0,0 +1,149 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class RetryTest {
+
+    private static final RetryPolicy THREE_ATTEMPTS = RetryPolicy.of(3, Duration.ofMillis(5));
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+    private AtomicInteger calls = new AtomicInteger();
+    private Job job = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runSucceedsAfterTransientFailures() {
+        Step<Integer> step = Step.of(() -> failTimes(2));
+        step.setRetryPolicy(THREE_ATTEMPTS);
+        job.addStep(step);
+
+        job.run();
+
+        check(step.getStatus()).is(JobStatus.SUCCESS);
+        check(step.getResult()).is(3);
+        check(step.getAttempts()).is(3);
+        check(step.getLastError() instanceof IllegalStateException).is(true);
+    }
+
+    @Test
+    void runFailsWhenAttemptsAreExhausted() {
+        Step<Integer> step = Step.of(() -> failTimes(5));
+        step.setRetryPolicy(THREE_ATTEMPTS);
+        job.addStep(step);
+
+        assertThrows(IllegalStateException.class, job::run);
+
+        check(step.getStatus()).is(JobStatus.ERROR);
+        check(step.getAttempts()).is(3);
+        check(calls.get()).is(3);
+    }
+
+    @Test
+    void nonRetryableErrorFailsImmediately() {
+        Step<Integer> step = Step.of(() -> failTimes(2));
+        step.setRetryPolicy(THREE_ATTEMPTS.retryOn(UnsupportedOperationException.class));
+        job.addStep(step);
+
+        assertThrows(IllegalStateException.class, job::run);
+
+        check(step.getAttempts()).is(1);
+    }
+
+    @Test
+    void asyncRunRetriesOnTimer() {
+        Step<Integer> step = Step.ofAsync(() -> CompletableFuture.supplyAsync(() -> failTimes(2), executor));
+        step.setRetryPolicy(THREE_ATTEMPTS);
+        job.addStep(step);
+
+        job.run(executor);
+
+        check(step.getStatus()).is(JobStatus.SUCCESS);
+        check(step.getResult()).is(3);
+        check(step.getAttempts()).is(3);
+    }
+
+    @Test
+    void rollbackIsRetried() {
+        Step<Void> step = new Step<>(() -> null, () -> failTimes(1), null, null);
+        step.setRollbackRetryPolicy(THREE_ATTEMPTS);
+        job.addStep(step);
+        job.run();
+
+        job.rollback();
+
+        check(step.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(step.getAttempts()).is(2);
+    }
+
+    @Test
+    void parallelRollbackRetryDoesNotHoldPoolThread() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            Step<Void> step = new Step<>(() -> null, () -> failTimes(1), null, null);
+            step.setRollbackRetryPolicy(RetryPolicy.of(2, Duration.ofMillis(500)).withJitter(0));
+            job.addStep(step);
+            job.run();
+
+            CompletableFuture<Void> rollback = job.rollbackAsync(singleThread, 1, FailurePolicy.STOP);
+            await().until(() -> calls.get() == 1);
+            String free = singleThread.submit(() -> "free").get(250, TimeUnit.MILLISECONDS);
+            rollback.get(5, TimeUnit.SECONDS);
+
+            check(free).is("free");
+            check(step.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+            check(step.getAttempts()).is(2);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncRollbackFailsWhenAttemptsAreExhausted() {
+        Step<Void> step = new Step<>(() -> null, () -> failTimes(5), null, null);
+        step.setRollbackRetryPolicy(THREE_ATTEMPTS);
+        job.addStep(step);
+        job.run();
+
+        assertThrows(IllegalStateException.class, () -> Futures.join(job.rollbackAsync(executor)));
+
+        check(step.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+        check(step.getAttempts()).is(3);
+        check(job.getStatus()).is(JobStatus.ERROR_ROLLBACK);
+    }
+
+    @Test
+    void backoffGrowsAndIsCapped() {
+        RetryPolicy policy = RetryPolicy.of(10, Duration.ofMillis(10))
+                .withJitter(0)
+                .withMaxDelay(Duration.ofMillis(30));
+
+        check(policy.delayNanos(1)).is(Duration.ofMillis(10).toNanos());
+        check(policy.delayNanos(2)).is(Duration.ofMillis(20).toNanos());
+        check(policy.delayNanos(3)).is(Duration.ofMillis(30).toNanos());
+        check(policy.delayNanos(8)).is(Duration.ofMillis(30).toNanos());
+    }
+
+    private int failTimes(int failures) {
+        int call = calls.incrementAndGet();
+        if (call <= failures) {
+            throw new IllegalStateException("Transient failure " + call);
+        }
+        return call;
+    }
+}
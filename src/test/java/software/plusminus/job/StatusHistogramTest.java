@@ -0,0 +1,105 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static software.plusminus.check.Checks.check;
+
+class StatusHistogramTest {
+
+    private static final JobStatus[] STATUSES = JobStatus.values();
+
+    private StatusHistogram histogram = new StatusHistogram();
+    private List<JobStatus> statuses = new ArrayList<>();
+
+    @Test
+    void emptyHistogram() {
+        check(histogram.max(JobStatus.READY)).is(JobStatus.READY);
+        check(histogram.total()).is(0);
+    }
+
+    @Test
+    void allCombinationsOfThreeSteps() {
+        for (JobStatus first : STATUSES) {
+            for (JobStatus second : STATUSES) {
+                for (JobStatus third : STATUSES) {
+                    histogram = new StatusHistogram();
+                    statuses = new ArrayList<>();
+                    add(first);
+                    checkSameAsMax();
+                    add(second);
+                    checkSameAsMax();
+                    add(third);
+                    checkSameAsMax();
+                }
+            }
+        }
+    }
+
+    @Test
+    void allTransitionsOfEveryStep() {
+        add(JobStatus.READY);
+        add(JobStatus.NO_ROLLBACK);
+        add(JobStatus.SUCCESS);
+        for (int index = 0; index < statuses.size(); index++) {
+            for (JobStatus from : STATUSES) {
+                move(index, from);
+                for (JobStatus to : STATUSES) {
+                    move(index, to);
+                    checkSameAsMax();
+                    move(index, from);
+                    checkSameAsMax();
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomTransitionSequences() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            int action = random.nextInt(10);
+            if (action == 0 || statuses.isEmpty()) {
+                add(randomStatus(random));
+            } else if (action == 1) {
+                int index = random.nextInt(statuses.size());
+                histogram.remove(statuses.remove(index));
+            } else {
+                move(random.nextInt(statuses.size()), randomStatus(random));
+            }
+            checkSameAsMax();
+        }
+    }
+
+    @Test
+    void allNoRollbackSteps() {
+        statuses.addAll(Collections.nCopies(3, JobStatus.NO_ROLLBACK));
+        statuses.forEach(histogram::add);
+
+        check(histogram.max(JobStatus.READY)).is(JobStatus.NO_ROLLBACK);
+        move(1, JobStatus.SUCCESS_ROLLBACK);
+        check(histogram.max(JobStatus.READY)).is(JobStatus.PARTIAL_ROLLBACK);
+    }
+
+    private void add(JobStatus status) {
+        statuses.add(status);
+        histogram.add(status);
+    }
+
+    private void move(int index, JobStatus to) {
+        histogram.move(statuses.set(index, to), to);
+    }
+
+    private void checkSameAsMax() {
+        check(histogram.max(JobStatus.READY)).is(JobStatus.maxOf(statuses, JobStatus.READY));
+        check(histogram.total()).is(statuses.size());
+    }
+
+    private static JobStatus randomStatus(Random random) {
+        return STATUSES[random.nextInt(STATUSES.length)];
+    }
+}
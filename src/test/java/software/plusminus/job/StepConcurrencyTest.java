@@ -0,0 +1,156 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static software.plusminus.check.Checks.check;
+
+class StepConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int ITERATIONS = 500;
+
+    private ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void onlyOneConcurrentRunWins() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            AtomicInteger runs = new AtomicInteger();
+            int[] notifications = new int[JobStatus.values().length];
+            Step<Integer> step = new Step<>(runs::incrementAndGet, null, null, countingListener(notifications));
+
+            int winners = race(step::run);
+
+            check(winners).is(1);
+            check(runs.get()).is(1);
+            check(step.getStatus()).is(JobStatus.SUCCESS);
+            check(notifications[JobStatus.RUNNING.ordinal()]).is(1);
+            check(notifications[JobStatus.SUCCESS.ordinal()]).is(1);
+        }
+    }
+
+    @Test
+    void onlyOneConcurrentRollbackWins() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            AtomicInteger rollbacks = new AtomicInteger();
+            int[] notifications = new int[JobStatus.values().length];
+            Step<Void> step = new Step<>(() -> null, rollbacks::incrementAndGet, null,
+                    countingListener(notifications));
+            step.run();
+
+            int winners = race(step::rollback);
+
+            check(winners).is(1);
+            check(rollbacks.get()).is(1);
+            check(notifications[JobStatus.ROLLBACK.ordinal()]).is(1);
+            check(notifications[JobStatus.SUCCESS_ROLLBACK.ordinal()]).is(1);
+        }
+    }
+
+    @Test
+    void skipAndRunExcludeEachOther() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            CountDownLatch skipAttempted = new CountDownLatch(1);
+            AtomicInteger runs = new AtomicInteger();
+            Step<Integer> step = Step.of(() -> {
+                await(skipAttempted);
+                return runs.incrementAndGet();
+            });
+
+            Future<Boolean> run = executor.submit(() -> attempt(step::run));
+            Future<Boolean> skip = executor.submit(() -> {
+                try {
+                    return attempt(step::skip);
+                } finally {
+                    skipAttempted.countDown();
+                }
+            });
+
+            check(run.get(5, TimeUnit.SECONDS) ^ skip.get(5, TimeUnit.SECONDS)).is(true);
+            check(step.getStatus()).is(runs.get() == 1 ? JobStatus.SUCCESS : JobStatus.SKIPPED);
+        }
+    }
+
+    @Test
+    void jobStatusStaysConsistentUnderConcurrentSteps() throws Exception {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            Job job = new Job();
+            List<Step<?>> steps = new ArrayList<>();
+            for (int j = 0; j < 50; j++) {
+                Step<Void> step = Step.of(() -> null);
+                steps.add(step);
+                job.addStep(step);
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (Step<?> step : steps) {
+                futures.add(executor.submit(() -> attempt(step::run)));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            check(job.getStatus()).is(JobStatus.SUCCESS);
+            check(JobStatus.max(steps, JobStatus.READY)).is(JobStatus.SUCCESS);
+        }
+    }
+
+    private int race(Runnable action) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                return attempt(action);
+            }));
+        }
+        start.countDown();
+        int winners = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(5, TimeUnit.SECONDS)) {
+                winners++;
+            }
+        }
+        return winners;
+    }
+
+    private static boolean attempt(Runnable action) {
+        try {
+            action.run();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private static Consumer<JobStatus> countingListener(int[] notifications) {
+        return status -> {
+            synchronized (notifications) {
+                notifications[status.ordinal()]++;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
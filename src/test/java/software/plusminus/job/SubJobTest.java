@@ -0,0 +1,215 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.InvalidStep;
+import software.plusminus.job.steps.TestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.plusminus.check.Checks.check;
+
+class SubJobTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+    private List<String> events = new CopyOnWriteArrayList<>();
+    private AtomicBoolean error = new AtomicBoolean();
+    private Job parent = new Job();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsSubJobsAsSteps() {
+        Job first = subJob("a");
+        Job second = subJob("b");
+        Step<Void> firstStep = parent.addJob(first);
+        parent.addJob(second, firstStep);
+
+        parent.run();
+
+        check(parent.getStatus()).is(JobStatus.SUCCESS);
+        check(first.getStatus()).is(JobStatus.SUCCESS);
+        check(events).is("run a1", "run a2", "run b1", "run b2");
+    }
+
+    @Test
+    void rerunContinuesInsideFailedSubJob() {
+        Job first = subJob("a");
+        Job second = subJob("b");
+        parent.addJob(first);
+        parent.addJob(second);
+        error.set(true);
+
+        assertThrows(IllegalStateException.class, parent::run);
+        check(parent.getStatus()).is(JobStatus.ERROR);
+        check(first.getStatus()).is(JobStatus.ERROR);
+
+        error.set(false);
+        events.clear();
+        parent.run();
+
+        check(parent.getStatus()).is(JobStatus.SUCCESS);
+        check(events).is("run a2", "run b1", "run b2");
+    }
+
+    @Test
+    void rollbackIsRecursive() {
+        parent.addJob(subJob("a"));
+        parent.addJob(subJob("b"));
+        parent.run();
+        events.clear();
+
+        parent.rollback();
+
+        check(parent.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+        check(events).is("rollback b2", "rollback b1", "rollback a2", "rollback a1");
+    }
+
+    @Test
+    void rollbackCompensatesPartiallyFailedSubJob() {
+        parent.addJob(subJob("a"));
+        error.set(true);
+        assertThrows(IllegalStateException.class, parent::run);
+        events.clear();
+
+        parent.rollback();
+
+        check(events).is("rollback a1");
+        check(parent.getStatus()).is(JobStatus.SUCCESS_ROLLBACK);
+    }
+
+    @Test
+    void independentSubJobsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Job first = new Job();
+        first.addStep(Step.of(() -> TestUtils.awaitOther(bothStarted)));
+        Job second = new Job();
+        second.addStep(Step.of(() -> TestUtils.awaitOther(bothStarted)));
+        parent.addStep(Step.ofAsync(first, executor));
+        parent.addStep(Step.ofAsync(second, executor));
+
+        parent.run(executor);
+
+        check(parent.getStatus()).is(JobStatus.SUCCESS);
+        check(bothStarted.getCount()).is(0L);
+    }
+
+    @Test
+    void invalidSubJobMakesParentInvalid() {
+        Job invalid = new Job();
+        invalid.addStep(Step.of(new InvalidStep()));
+
+        parent.addJob(invalid);
+
+        check(parent.getStatus()).is(JobStatus.INVALID);
+    }
+
+    @Test
+    void cancellingParentCancelsSubJob() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Job sub = new Job();
+        Step<Void> hanging = Step.of(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        sub.addStep(hanging);
+        parent.addJob(sub);
+        executor.execute(() -> {
+            try {
+                parent.run();
+            } catch (RuntimeException e) {
+                events.add("stopped");
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        parent.cancel();
+
+        await().until(() -> events.contains("stopped"));
+        check(hanging.getStatus()).is(JobStatus.CANCELLED);
+        check(parent.getStatus()).is(JobStatus.CANCELLED);
+    }
+
+    @Test
+    void jobCannotContainItself() {
+        assertThrows(IllegalArgumentException.class, () -> parent.addJob(parent));
+    }
+
+    @Test
+    void jobCannotContainItselfIndirectly() {
+        Job child = new Job();
+        Job grandChild = new Job();
+        parent.addJob(child);
+        child.addJob(grandChild);
+
+        assertThrows(IllegalArgumentException.class, () -> child.addJob(parent));
+        assertThrows(IllegalArgumentException.class, () -> grandChild.addStep(Step.of(parent)));
+    }
+
+    @Test
+    void subJobRollbackStatusIsPropagated() {
+        Job withoutRollback = new Job();
+        withoutRollback.addStep(Step.of(() -> events.add("run a")));
+        Job partial = subJob("b");
+        partial.addStep(Step.of(() -> events.add("run b3")));
+        Step<Void> first = parent.addJob(withoutRollback);
+        Step<Void> second = parent.addJob(partial);
+        parent.run();
+
+        parent.rollback();
+
+        check(first.getStatus()).is(JobStatus.NO_ROLLBACK);
+        check(second.getStatus()).is(JobStatus.PARTIAL_ROLLBACK);
+        check(parent.getStatus()).is(JobStatus.PARTIAL_ROLLBACK);
+    }
+
+    @Test
+    void skippingSubJobSkipsItsStep() {
+        Job sub = new Job();
+        Step<Boolean> only = Step.of(() -> events.add("run a"));
+        sub.addStep(only);
+        Step<Void> step = parent.addJob(sub);
+        parent.addJob(subJob("b"));
+
+        only.skip();
+        parent.run();
+
+        check(step.getStatus()).is(JobStatus.SKIPPED);
+        check(parent.getStatus()).is(JobStatus.SUCCESS);
+        check(events).is("run b1", "run b2");
+
+        only.unskip();
+
+        check(step.getStatus()).is(JobStatus.READY);
+    }
+
+    private Job subJob(String name) {
+        Job job = new Job();
+        job.addStep(new Step<>(() -> events.add("run " + name + 1), () -> events.add("rollback " + name + 1),
+                null, null));
+        job.addStep(new Step<>(() -> {
+            if (error.get()) {
+                throw new IllegalStateException("Test error");
+            }
+            return events.add("run " + name + 2);
+        }, () -> events.add("rollback " + name + 2), null, null));
+        return job;
+    }
+}
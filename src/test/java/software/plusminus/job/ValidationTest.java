@@ -0,0 +1,76 @@
+package software.plusminus.job;
+
+import org.junit.jupiter.api.Test;
+import software.plusminus.job.steps.InvalidStep;
+import software.plusminus.job.steps.NotPausedStep;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static software.plusminus.check.Checks.check;
+
+class ValidationTest {
+
+    private AtomicInteger validations = new AtomicInteger();
+    private Step<Void> step = new Step<>(() -> null, null, () -> validations.incrementAndGet() > 0, null);
+    private Job job = new Job();
+
+    @Test
+    void constrainedClasses() {
+        check(ValidationUtils.isConstrained(NotPausedStep.class)).is(false);
+        check(ValidationUtils.isConstrained(InvalidStep.class)).is(true);
+        check(ValidationUtils.isConstrained(TestParameters.class)).is(true);
+    }
+
+    @Test
+    void unconstrainedRunnerIsValid() {
+        check(new NotPausedStep().validate()).is(true);
+    }
+
+    @Test
+    void constrainedRunnerIsValidated() {
+        InvalidStep runner = new InvalidStep();
+
+        check(runner.validate()).is(false);
+        runner.makeValid();
+        check(runner.validate()).is(true);
+    }
+
+    @Test
+    void alwaysValidatesByDefault() {
+        job.addStep(step);
+
+        job.run();
+        step.validate();
+
+        check(validations.get()).is(3);
+    }
+
+    @Test
+    void validatesOnlyWhenDirty() {
+        step.setValidationMode(ValidationMode.WHEN_DIRTY);
+        job.addStep(step);
+
+        job.run();
+        step.validate();
+        check(validations.get()).is(1);
+
+        step.markDirty();
+        step.validate();
+        check(validations.get()).is(2);
+    }
+
+    @Test
+    void keepsInvalidStatusUntilDirty() {
+        InvalidStep runner = new InvalidStep();
+        Step<Void> invalidStep = Step.of(runner, ValidationMode.WHEN_DIRTY);
+        check(invalidStep.getStatus()).is(JobStatus.INVALID);
+
+        runner.makeValid();
+        invalidStep.validate();
+        check(invalidStep.getStatus()).is(JobStatus.INVALID);
+
+        invalidStep.markDirty();
+        invalidStep.validate();
+        check(invalidStep.getStatus()).is(JobStatus.READY);
+    }
+}
@@ -0,0 +1,51 @@
+package software.plusminus.job.steps;
+
+import lombok.experimental.UtilityClass;
+import software.plusminus.job.Job;
+import software.plusminus.job.Step;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@UtilityClass
+public class TestUtils {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    public Job job(Consumer<Job> setup, Step<?>... steps) {
+        Job job = new Job();
+        setup.accept(job);
+        for (Step<?> step : steps) {
+            job.addStep(step);
+        }
+        return job;
+    }
+
+    public void awaitLatch(CountDownLatch latch) {
+        boolean released;
+        try {
+            released = latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        if (!released) {
+            throw new IllegalStateException("Latch was not released in " + TIMEOUT_SECONDS + " seconds");
+        }
+    }
+
+    public boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        awaitLatch(latch);
+        return true;
+    }
+
+    public void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}